@@ -0,0 +1,62 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded synthetic ratings so every benchmark run sees the same data
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param users number of users
+     * @param items catalog size
+     * @param ratingsPerUser ratings drawn per user, repeated picks collapse into one rating
+     * @param seed random seed
+     * @return ratings of every user
+     */
+    static Map<User, HashMap<Item, Double>> ratings(int users, int items, int ratingsPerUser, long seed) {
+        Random random = new Random(seed);
+        List<Item> catalog = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            catalog.add(new Item("Item " + i));
+        }
+        Map<User, HashMap<Item, Double>> data = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            HashMap<Item, Double> ratings = new HashMap<>();
+            for (int r = 0; r < ratingsPerUser; r++) {
+                ratings.put(catalog.get(random.nextInt(items)), 1.0 + random.nextInt(5));
+            }
+            data.put(new User("User " + u), ratings);
+        }
+        return data;
+    }
+
+    /**
+     * Remove one rating of every user with more than one rating from the training data
+     * @param training ratings, the held out ratings are removed from it
+     * @return held out item and rating of every such user
+     */
+    static Map<User, Map.Entry<Item, Double>> holdOut(Map<User, HashMap<Item, Double>> training) {
+        Map<User, Map.Entry<Item, Double>> holdout = new HashMap<>();
+        for (Map.Entry<User, HashMap<Item, Double>> user : training.entrySet()) {
+            if (user.getValue().size() > 1) {
+                Iterator<Map.Entry<Item, Double>> ratings = user.getValue().entrySet().iterator();
+                Map.Entry<Item, Double> held = ratings.next();
+                holdout.put(user.getKey(), Map.entry(held.getKey(), held.getValue()));
+                ratings.remove();
+            }
+        }
+        return holdout;
+    }
+}
@@ -0,0 +1,34 @@
+package org.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs every benchmark with the GC profiler and writes the results as JSON, so runs of different
+ * releases can be compared
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args path of the JSON result file, followed by any regular JMH command line options
+     * @throws Exception If JMH options are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        String result = args.length > 0 ? args[0] : "jmh-result.json";
+        String[] jmhArgs = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[0];
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("--add-modules", "jdk.incubator.vector")
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,65 @@
+package org.bench;
+
+import org.main.ClusteredSlopeOne;
+import org.main.Item;
+import org.main.Recommendation;
+import org.main.User;
+import org.ml.examples.Clusterer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training and serving of cluster-partitioned Slope One, one cluster is the global model
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusteredSlopeOneBenchmark {
+
+    @Param({"1", "4", "8"})
+    int clusters;
+
+    private Map<User, HashMap<Item, Double>> data;
+    private Clusterer clusterer;
+    private ClusteredSlopeOne model;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = BenchmarkData.ratings(10000, 5000, 50, 42);
+        clusterer = new Clusterer();
+        clusterer.setNumClusters(clusters);
+        model = ClusteredSlopeOne.train(data, clusterer, 32, Runtime.getRuntime().availableProcessors());
+        probes = data.keySet().toArray(new User[0]);
+    }
+
+    private User nextUser() {
+        User user = probes[next];
+        next = (next + 1) % probes.length;
+        return user;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ClusteredSlopeOne train() throws Exception {
+        return ClusteredSlopeOne.train(data, clusterer, 32, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        return model.predict(nextUser());
+    }
+
+    @Benchmark
+    public List<Recommendation> topN() {
+        return model.recommend(nextUser(), 10);
+    }
+}
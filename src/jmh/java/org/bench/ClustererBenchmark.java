@@ -0,0 +1,65 @@
+package org.bench;
+
+import org.ml.examples.Clusterer;
+import org.openjdk.jmh.annotations.*;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elbow method K sweep of {@link Clusterer#findOptimalK(Instances, int, boolean)} over synthetic
+ * Gaussian blobs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ClustererBenchmark {
+
+    @Param({"1000", "10000"})
+    int rows;
+
+    @Param({"4", "16"})
+    int dimensions;
+
+    @Param({"10", "20"})
+    int lengthK;
+
+    @Param({"0", "2"})
+    int earlyStopPatience;
+
+    private Instances data;
+    private Clusterer clusterer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int d = 0; d < dimensions; d++) {
+            attributes.add(new Attribute("x" + d));
+        }
+        data = new Instances("blobs", attributes, rows);
+        for (int r = 0; r < rows; r++) {
+            int blob = r % 5;
+            double[] values = new double[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                values[d] = blob * 3.0 + random.nextGaussian();
+            }
+            data.add(new DenseInstance(1.0, values));
+        }
+        clusterer = new Clusterer();
+        clusterer.setEarlyStopPatience(earlyStopPatience);
+    }
+
+    @Benchmark
+    public Map<Integer, Double> findOptimalK() throws Exception {
+        return clusterer.findOptimalK(data, lengthK, false);
+    }
+}
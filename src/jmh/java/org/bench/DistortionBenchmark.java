@@ -0,0 +1,67 @@
+package org.bench;
+
+import org.ml.examples.Distortion;
+import org.openjdk.jmh.annotations.*;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD distortion scoring of random points against {@code k} random centroids, the
+ * SIMD runs need the {@code vector} profile
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistortionBenchmark {
+
+    @Param({"10000", "100000"})
+    int rows;
+
+    @Param({"4", "16", "64"})
+    int dimensions;
+
+    @Param({"20"})
+    int k;
+
+    @Param({"false", "true"})
+    boolean vectorized;
+
+    private Distortion distortion;
+    private Instances centroids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        distortion = new Distortion(gaussian(random, rows));
+        centroids = gaussian(random, k);
+    }
+
+    private Instances gaussian(Random random, int size) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int d = 0; d < dimensions; d++) {
+            attributes.add(new Attribute("x" + d));
+        }
+        Instances data = new Instances("points", attributes, size);
+        for (int r = 0; r < size; r++) {
+            double[] values = new double[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                values[d] = random.nextGaussian();
+            }
+            data.add(new DenseInstance(1.0, values));
+        }
+        return data;
+    }
+
+    @Benchmark
+    public double mean() {
+        return distortion.mean(centroids, vectorized);
+    }
+}
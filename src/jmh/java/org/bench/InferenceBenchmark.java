@@ -0,0 +1,83 @@
+package org.bench;
+
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.ml.inference.InferenceService;
+import org.ml.inference.NetworkStore;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions.LossFunction;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-row scoring throughput of a MoonClassifier sized network under 16 concurrent callers:
+ * {@code direct} runs one {@link MultiLayerNetwork#output} per row on the shared network, which is
+ * not thread-safe and therefore locked, {@code batched} goes through an {@link InferenceService}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class InferenceBenchmark {
+
+    @Param({"direct", "batched"})
+    String mode;
+
+    @Param({"50"})
+    int hidden;
+
+    private MultiLayerNetwork model;
+    private InferenceService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MultiLayerNetwork trained = new MultiLayerNetwork(new NeuralNetConfiguration.Builder()
+                .seed(123)
+                .weightInit(WeightInit.XAVIER)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(2).nOut(hidden).activation(Activation.RELU).build())
+                .layer(new OutputLayer.Builder(LossFunction.NEGATIVELOGLIKELIHOOD)
+                        .activation(Activation.SOFTMAX).nIn(hidden).nOut(2).build())
+                .build());
+        trained.init();
+        Path file = Files.createTempFile("inference-benchmark", ".zip");
+        NetworkStore.save(trained, file);
+        model = NetworkStore.load(file);
+        Files.delete(file);
+        if ("batched".equals(mode)) {
+            service = new InferenceService(model);
+            service.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Benchmark
+    public double[] scoreRow() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double[] row = {random.nextDouble(-1.5, 2.5), random.nextDouble(-1.0, 1.5)};
+        if (service != null) {
+            return service.predict(row).join();
+        }
+        synchronized (model) {
+            return model.output(Nd4j.create(row, new long[]{1, 2}, 'c'), false).toDoubleVector();
+        }
+    }
+}
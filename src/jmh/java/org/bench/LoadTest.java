@@ -0,0 +1,134 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.SlopeOne;
+import org.main.User;
+import org.metrics.Histogram;
+import org.metrics.HistogramSnapshot;
+import org.metrics.MetricsRegistry;
+import org.server.RecommendationServer;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load test of {@link RecommendationServer}. Requests are issued at a fixed rate whatever
+ * the response times, each on its own virtual thread, and latency is measured from the time a
+ * request was scheduled, so a stalled server shows up in the percentiles instead of lowering the
+ * offered load. The mix is 80% top-N, 15% predict and 5% single-rating ingest.
+ * <pre>
+ * java -cp target/classes:&lt;benchmark classpath&gt; org.bench.LoadTest [qps] [seconds] [warmup seconds] [base url]
+ * </pre>
+ * Requests of the warm-up are sent at the same rate but not recorded.
+ * Without a base URL an in-process server on a free port is started with 2,000 synthetic users.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int qps = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int users = 2000;
+        RecommendationServer server = null;
+        String base;
+        if (args.length > 3) {
+            base = args[3];
+        } else {
+            Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(users, 1000, 20, 42);
+            SlopeOne slopeOne = new SlopeOne(Runtime.getRuntime().availableProcessors());
+            slopeOne.train(data);
+            server = new RecommendationServer(slopeOne);
+            server.setPort(0);
+            server.start();
+            base = "http://localhost:" + server.boundPort();
+        }
+
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram[] latencies = {registry.histogram("recommend"), registry.histogram("predict"),
+                registry.histogram("ingest")};
+        LongAdder errors = new LongAdder();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Random random = new Random(42);
+        long period = TimeUnit.SECONDS.toNanos(1) / qps;
+        long warmupRequests = (long) qps * warmup;
+        long total = warmupRequests + (long) qps * seconds;
+        ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+        long begin = System.nanoTime();
+        long start = begin + warmupRequests * period;
+        for (long i = 0; i < total; i++) {
+            long intended = begin + i * period;
+            boolean recorded = i >= warmupRequests;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int kind = pick(random.nextInt(100));
+            HttpRequest request = request(base, kind, "User " + random.nextInt(users), random);
+            senders.execute(() -> {
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200 && recorded) {
+                        errors.increment();
+                    }
+                } catch (Exception e) {
+                    if (recorded) {
+                        errors.increment();
+                    }
+                }
+                if (recorded) {
+                    latencies[kind].record(System.nanoTime() - intended);
+                }
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(1, TimeUnit.MINUTES);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("offered %d req/s for %d s, completed %.0f req/s, %d errors%n",
+                qps, seconds, (total - warmupRequests) / elapsed, errors.sum());
+        String[] names = {"recommend", "predict", "ingest"};
+        for (int k = 0; k < names.length; k++) {
+            HistogramSnapshot s = latencies[k].snapshot();
+            System.out.printf("%-10s %7d requests  p50 %8.3f ms  p99 %8.3f ms  max %8.3f ms%n", names[k],
+                    s.getCount(), s.getP50() / 1e6, s.getP99() / 1e6, s.getMax() / 1e6);
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        System.exit(0);
+    }
+
+    private static int pick(int percent) {
+        return percent < 80 ? 0 : percent < 95 ? 1 : 2;
+    }
+
+    private static HttpRequest request(String base, int kind, String user, Random random) {
+        String encoded = URLEncoder.encode(user, StandardCharsets.UTF_8);
+        if (kind == 0) {
+            return HttpRequest.newBuilder(URI.create(base + "/recommend?n=10&user=" + encoded)).build();
+        }
+        if (kind == 1) {
+            return HttpRequest.newBuilder(URI.create(base + "/predict?user=" + encoded)).build();
+        }
+        String line = user + ",Item " + random.nextInt(1000) + "," + (1 + random.nextInt(5)) + "\n";
+        return HttpRequest.newBuilder(URI.create(base + "/ratings"))
+                .POST(HttpRequest.BodyPublishers.ofString(line)).build();
+    }
+}
@@ -0,0 +1,65 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.SlopeOneModel;
+import org.main.User;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+import org.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the built-in metrics on the prediction hot path, compare {@code enabled = true} with
+ * {@code false}, plus the raw cost of one timed histogram record
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @Param({"true", "false"})
+    boolean enabled;
+
+    private SlopeOneModel model;
+    private User[] users;
+    private Histogram histogram;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Metrics.setEnabled(enabled);
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(2000, 1000, 20, 42);
+        model = SlopeOneModel.train(data).snapshot();
+        users = data.keySet().toArray(new User[0]);
+        histogram = new MetricsRegistry().histogram("benchmark.nanos");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (enabled) {
+            System.out.println(Metrics.registry().snapshot().getHistograms().get("slopeone.predict.nanos"));
+        }
+        Metrics.setEnabled(true);
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        User user = users[next];
+        next = next + 1 == users.length ? 0 : next + 1;
+        return model.predict(user);
+    }
+
+    @Benchmark
+    public long recordTimed() {
+        long start = Metrics.start();
+        histogram.recordSince(start);
+        return start;
+    }
+}
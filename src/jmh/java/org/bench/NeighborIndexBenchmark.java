@@ -0,0 +1,56 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.Recommendation;
+import org.main.SlopeOneModel;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prediction and top-N latency of a full sparse model against top-K neighbor indexes, {@code k = 0}
+ * is the full model. See {@link NeighborTradeoff} for the matching accuracy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NeighborIndexBenchmark {
+
+    @Param({"0", "20", "100"})
+    int k;
+
+    private SlopeOneModel model;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(10000, 20000, 40, 42);
+        SlopeOneModel full = SlopeOneModel.train(data).snapshot();
+        model = k == 0 ? full : full.neighbors(k);
+        probes = data.keySet().toArray(new User[0]);
+    }
+
+    private User nextUser() {
+        User user = probes[next];
+        next = (next + 1) % probes.length;
+        return user;
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        return model.predict(nextUser());
+    }
+
+    @Benchmark
+    public List<Recommendation> topN() {
+        return model.recommend(nextUser(), 10);
+    }
+}
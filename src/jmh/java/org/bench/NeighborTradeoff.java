@@ -0,0 +1,71 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.NeighborIndex;
+import org.main.SlopeOneModel;
+import org.main.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prints the size, prediction time and hold-out accuracy of top-K neighbor indexes against the full
+ * model, one rating per user is held out of training and predicted afterwards. The accuracy loss is
+ * the change of MAE and coverage relative to the full model.
+ */
+public class NeighborTradeoff {
+
+    private static final int[] KS = {10, 25, 50, 100, 250, 500};
+
+    /**
+     * @param args optional number of users, catalog size and ratings per user
+     */
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int ratingsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        Map<User, HashMap<Item, Double>> training = BenchmarkData.ratings(users, items, ratingsPerUser, 42);
+        Map<User, Map.Entry<Item, Double>> holdout = BenchmarkData.holdOut(training);
+        SlopeOneModel full = SlopeOneModel.train(training).snapshot();
+
+        System.out.printf("%-6s %12s %12s %9s %9s %9s %10s %10s%n",
+                "K", "entries", "us/predict", "coverage", "MAE", "RMSE", "dCoverage", "dMAE");
+        double[] reference = evaluate(full, training, holdout);
+        print("full", -1, reference, reference);
+        for (int k : KS) {
+            SlopeOneModel model = full.neighbors(k);
+            print(Integer.toString(k), ((NeighborIndex) model.getPairs()).entries(),
+                    evaluate(model, training, holdout), reference);
+        }
+    }
+
+    private static void print(String k, long entries, double[] result, double[] reference) {
+        System.out.printf("%-6s %12s %12.1f %8.1f%% %9.4f %9.4f %9.1f%% %+10.4f%n", k,
+                entries < 0 ? "-" : Long.toString(entries), result[0], result[1], result[2], result[3],
+                result[1] - reference[1], result[2] - reference[2]);
+    }
+
+    /**
+     * @return microseconds per prediction, coverage in percent, MAE and RMSE
+     */
+    private static double[] evaluate(SlopeOneModel model, Map<User, HashMap<Item, Double>> training,
+                                     Map<User, Map.Entry<Item, Double>> holdout) {
+        int predicted = 0;
+        double absolute = 0.0;
+        double squared = 0.0;
+        long start = System.nanoTime();
+        for (Map.Entry<User, Map.Entry<Item, Double>> held : holdout.entrySet()) {
+            Double prediction = model.predict(training.get(held.getKey())).get(held.getValue().getKey());
+            if (prediction != null) {
+                double error = prediction - held.getValue().getValue();
+                absolute += Math.abs(error);
+                squared += error * error;
+                predicted++;
+            }
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / holdout.size();
+        return new double[]{micros, 100.0 * predicted / holdout.size(), absolute / predicted,
+                Math.sqrt(squared / predicted)};
+    }
+}
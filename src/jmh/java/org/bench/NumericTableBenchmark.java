@@ -0,0 +1,83 @@
+package org.bench;
+
+import org.data.preprocessing.NumericTable;
+import org.data.preprocessing.NumericTableReader;
+import org.openjdk.jmh.annotations.*;
+import weka.core.Instances;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a numeric ARFF file with {@link NumericTableReader} against Weka's {@code Instances(Reader)}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NumericTableBenchmark {
+
+    @Param({"100000", "1000000"})
+    int rows;
+
+    @Param({"8", "32"})
+    int dimensions;
+
+    private Path file;
+    private NumericTableReader reader;
+    private NumericTableReader singleThreaded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("numeric", ".arff");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("@relation points\n");
+            for (int d = 0; d < dimensions; d++) {
+                writer.write("@attribute x" + d + " numeric\n");
+            }
+            writer.write("@data\n");
+            for (int r = 0; r < rows; r++) {
+                for (int d = 0; d < dimensions; d++) {
+                    if (d > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(Double.toString(Math.round(random.nextGaussian() * 1e6) / 1e4));
+                }
+                writer.write('\n');
+            }
+        }
+        reader = new NumericTableReader();
+        singleThreaded = new NumericTableReader();
+        singleThreaded.setParallelism(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Instances weka() throws IOException {
+        try (BufferedReader input = Files.newBufferedReader(file)) {
+            return new Instances(input);
+        }
+    }
+
+    @Benchmark
+    public NumericTable parallel() throws IOException {
+        return reader.read(file);
+    }
+
+    @Benchmark
+    public NumericTable singleThreaded() throws IOException {
+        return singleThreaded.read(file);
+    }
+}
@@ -0,0 +1,73 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.PredictionCache;
+import org.main.SlopeOne;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-user prediction under Zipf distributed user traffic, with and without a prediction cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredictionCacheBenchmark {
+
+    @Param({"0", "1000"})
+    int cacheSize;
+
+    @Param({"1.0"})
+    double skew;
+
+    private SlopeOne slopeOne;
+    private User[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(10000, 5000, 50, 42);
+        slopeOne = new SlopeOne();
+        slopeOne.train(data);
+        if (cacheSize > 0) {
+            slopeOne.setCache(new PredictionCache(cacheSize, Duration.ofMinutes(5)));
+        }
+        User[] users = data.keySet().toArray(new User[0]);
+        double[] cumulative = new double[users.length];
+        double total = 0.0;
+        for (int u = 0; u < users.length; u++) {
+            total += 1.0 / Math.pow(u + 1, skew);
+            cumulative[u] = total;
+        }
+        Random random = new Random(42);
+        requests = new User[1 << 16];
+        for (int r = 0; r < requests.length; r++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            requests[r] = users[index >= 0 ? index : Math.min(-index - 1, users.length - 1)];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        if (slopeOne.getCache() != null) {
+            System.out.println("hit rate " + slopeOne.getCache().hitRate());
+        }
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        User user = requests[next];
+        next = (next + 1) & (requests.length - 1);
+        return slopeOne.predict(user);
+    }
+}
@@ -0,0 +1,70 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.SlopeOneModel;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of making rating updates visible, the way {@code RatingBatcher} does: a batch of ratings is
+ * applied to the writable model and a snapshot is published. {@code updateBatch} applies the same
+ * batch without publishing, the difference is the publish latency including the pages and users
+ * cloned by the first writes after a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PublishBenchmark {
+
+    @Param({"2000", "20000"})
+    int items;
+
+    @Param({"10000"})
+    int users;
+
+    @Param({"64"})
+    int batch;
+
+    private SlopeOneModel model;
+    private User[] probes;
+    private Item[] catalog;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(users, items, 40, 42);
+        model = SlopeOneModel.train(data);
+        probes = data.keySet().toArray(new User[0]);
+        catalog = new Item[items];
+        for (int i = 0; i < items; i++) {
+            catalog[i] = new Item("Item " + i);
+        }
+        random = new Random(42);
+    }
+
+    private void applyBatch() {
+        for (int i = 0; i < batch; i++) {
+            model.setRating(probes[random.nextInt(probes.length)], catalog[random.nextInt(items)],
+                    1 + random.nextInt(5));
+        }
+    }
+
+    @Benchmark
+    public void updateBatch() {
+        applyBatch();
+    }
+
+    @Benchmark
+    public SlopeOneModel publishBatch() {
+        applyBatch();
+        return model.snapshot();
+    }
+}
@@ -0,0 +1,85 @@
+package org.bench;
+
+import org.main.BiPolarSlopeOne;
+import org.main.Item;
+import org.main.SlopeOneModel;
+import org.main.SparsePairMatrix;
+import org.main.User;
+import org.main.WeightedSlopeOne;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prints the model size and hold-out accuracy of every scheme and minimum support, one rating per
+ * user is held out of training and predicted afterwards
+ */
+public class SchemeTradeoff {
+
+    private static final String[] SCHEMES = {"weighted", "bipolar"};
+    private static final int[] MIN_SUPPORTS = {1, 2, 5, 10};
+
+    /**
+     * @param args optional number of users, catalog size and ratings per user
+     */
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int ratingsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        Map<User, HashMap<Item, Double>> training = BenchmarkData.ratings(users, items, ratingsPerUser, 42);
+        Map<User, Map.Entry<Item, Double>> holdout = BenchmarkData.holdOut(training);
+
+        System.out.printf("%-9s %10s %12s %9s %9s %9s%n", "scheme", "minSupport", "pairs", "coverage", "MAE", "RMSE");
+        for (String scheme : SCHEMES) {
+            SlopeOneModel trained = SlopeOneModel.train(training);
+            for (int minSupport : MIN_SUPPORTS) {
+                configure(trained, scheme, minSupport);
+                SlopeOneModel model = trained.pruned(minSupport);
+                int predicted = 0;
+                double absolute = 0.0;
+                double squared = 0.0;
+                for (Map.Entry<User, Map.Entry<Item, Double>> held : holdout.entrySet()) {
+                    Double prediction = model.predict(training.get(held.getKey())).get(held.getValue().getKey());
+                    if (prediction != null) {
+                        double error = prediction - held.getValue().getValue();
+                        absolute += Math.abs(error);
+                        squared += error * error;
+                        predicted++;
+                    }
+                }
+                System.out.printf("%-9s %10d %12d %8.1f%% %9.4f %9.4f%n", scheme, minSupport,
+                        storedPairs(model), 100.0 * predicted / holdout.size(),
+                        absolute / predicted, Math.sqrt(squared / predicted));
+            }
+        }
+    }
+
+    /**
+     * @param model pruned model
+     * @return pairs the configured scheme reads, the like and dislike matrices for bi-polar models
+     */
+    private static int storedPairs(SlopeOneModel model) {
+        if (model.getScheme() instanceof BiPolarSlopeOne) {
+            return ((SparsePairMatrix) model.getLikes()).pairs() + ((SparsePairMatrix) model.getDislikes()).pairs();
+        }
+        return ((SparsePairMatrix) model.getPairs()).pairs();
+    }
+
+    /**
+     * Select a scheme by its benchmark name
+     * @param model writable model to configure
+     * @param scheme {@code weighted} or {@code bipolar}
+     * @param minSupport minimum number of co-ratings a pair needs to be used
+     */
+    static void configure(SlopeOneModel model, String scheme, int minSupport) {
+        if ("bipolar".equals(scheme)) {
+            if (model.getLikes() == null) {
+                model.enableBiPolar();
+            }
+            model.setScheme(new BiPolarSlopeOne(minSupport));
+        } else {
+            model.setScheme(new WeightedSlopeOne(minSupport));
+        }
+    }
+}
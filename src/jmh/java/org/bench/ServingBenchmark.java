@@ -0,0 +1,48 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.SlopeOne;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-user prediction the way {@code RecommendationServer} runs it, on a fresh virtual thread per
+ * request. With {@code -prof gc} the allocation per request must not grow with the catalog, the
+ * prediction buffers are reused across requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServingBenchmark {
+
+    @Param({"1000", "100000"})
+    int items;
+
+    private SlopeOne slopeOne;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(10000, items, 5, 42);
+        slopeOne = new SlopeOne();
+        slopeOne.train(data);
+        probes = data.keySet().toArray(new User[0]);
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictOnVirtualThread() throws InterruptedException {
+        User user = probes[next];
+        next = (next + 1) % probes.length;
+        Map<Item, Double>[] result = new Map[1];
+        Thread.ofVirtual().start(() -> result[0] = slopeOne.predict(user)).join();
+        return result[0];
+    }
+}
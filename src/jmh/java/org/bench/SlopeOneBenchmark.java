@@ -0,0 +1,113 @@
+package org.bench;
+
+import org.main.InputData;
+import org.main.Item;
+import org.main.Recommendation;
+import org.main.SlopeOneModel;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slope One training, single-user prediction and top-N selection over synthetic catalogs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlopeOneBenchmark {
+
+    @Param({"1000", "10000"})
+    int users;
+
+    @Param({"100", "5000"})
+    int items;
+
+    @Param({"10", "50"})
+    int ratingsPerUser;
+
+    /**
+     * Shards of {@link #buildMatrixParallel}, {@code 0} for available processors, sweep with
+     * {@code -p parallelism=1,2,4,8}
+     */
+    @Param({"0"})
+    int parallelism;
+
+    private Map<User, HashMap<Item, Double>> data;
+    private SlopeOneModel model;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.ratings(users, items, ratingsPerUser, 42);
+        model = SlopeOneModel.train(data).snapshot();
+        probes = data.keySet().toArray(new User[0]);
+    }
+
+    private User nextUser() {
+        User user = probes[next];
+        next = (next + 1) % probes.length;
+        return user;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SlopeOneModel buildMatrix() {
+        return SlopeOneModel.train(data);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SlopeOneModel buildMatrixParallel() {
+        return SlopeOneModel.train(data, parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Nested {@code HashMap} difference and frequency matrices the primitive engine replaced, kept as
+     * the allocation reference of {@link #buildMatrix}
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Item, Map<Item, Double>> buildMatrixBoxed() {
+        Map<Item, Map<Item, Double>> diff = new HashMap<>();
+        Map<Item, Map<Item, Integer>> freq = new HashMap<>();
+        for (HashMap<Item, Double> user : data.values()) {
+            for (Map.Entry<Item, Double> e : user.entrySet()) {
+                Map<Item, Double> diffs = diff.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+                Map<Item, Integer> counts = freq.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+                for (Map.Entry<Item, Double> e2 : user.entrySet()) {
+                    counts.merge(e2.getKey(), 1, Integer::sum);
+                    diffs.merge(e2.getKey(), e.getValue() - e2.getValue(), Double::sum);
+                }
+            }
+        }
+        for (Map.Entry<Item, Map<Item, Double>> row : diff.entrySet()) {
+            Map<Item, Integer> counts = freq.get(row.getKey());
+            row.getValue().replaceAll((item, sum) -> sum / counts.get(item));
+        }
+        return diff;
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        return model.predict(nextUser());
+    }
+
+    @Benchmark
+    public List<Recommendation> topN() {
+        return model.recommend(nextUser(), 10);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<User, HashMap<Item, Double>> initializeData() {
+        return InputData.initializeData(users);
+    }
+}
@@ -0,0 +1,60 @@
+package org.bench;
+
+import org.main.Item;
+import org.main.Recommendation;
+import org.main.SlopeOneModel;
+import org.main.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prediction and top-N latency of the Slope One schemes on models pruned to a minimum support,
+ * see {@link SchemeTradeoff} for the matching model size and accuracy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlopeOneSchemeBenchmark {
+
+    @Param({"weighted", "bipolar"})
+    String scheme;
+
+    @Param({"1", "2", "5", "10"})
+    int minSupport;
+
+    private SlopeOneModel model;
+    private User[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<User, HashMap<Item, Double>> data = BenchmarkData.ratings(10000, 5000, 50, 42);
+        SlopeOneModel trained = SlopeOneModel.train(data);
+        SchemeTradeoff.configure(trained, scheme, minSupport);
+        model = trained.pruned(minSupport);
+        probes = data.keySet().toArray(new User[0]);
+    }
+
+    private User nextUser() {
+        User user = probes[next];
+        next = (next + 1) % probes.length;
+        return user;
+    }
+
+    @Benchmark
+    public Map<Item, Double> predictUser() {
+        return model.predict(nextUser());
+    }
+
+    @Benchmark
+    public List<Recommendation> topN() {
+        return model.recommend(nextUser(), 10);
+    }
+}
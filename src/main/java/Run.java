@@ -1,8 +1,56 @@
+import org.data.storage.RatingStoreConverter;
+import org.main.InputData;
+import org.main.Item;
+import org.main.SlopeOne;
+import org.main.User;
+import org.metrics.Metrics;
 import org.ml.examples.Clusterer;
+import org.server.RecommendationServer;
 
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code Run [--headless]} clusterizes the sample data, the elbow chart is skipped when headless.
+ * <p>
+ * {@code Run serve [port] [ratings.csv]} trains Slope One on a {@code user,item,rating} CSV, or on
+ * generated users without one, and serves it with a headless {@link RecommendationServer}.
+ */
 public class Run {
     public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--headless")) {
+            System.setProperty("java.awt.headless", "true");
+        }
         Clusterer clusterer = new Clusterer();
         clusterer.Clusterize();
     }
-}
\ No newline at end of file
+
+    private static void serve(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Map<User, HashMap<Item, Double>> data;
+        if (args.length > 2) {
+            Map<User, HashMap<Item, Double>> ratings = new HashMap<>();
+            RatingStoreConverter.readCsv(Path.of(args[2]), (user, item, rating) ->
+                    ratings.computeIfAbsent(new User(user), u -> new HashMap<>()).put(new Item(item), rating));
+            data = ratings;
+        } else {
+            data = InputData.initializeData(1000);
+        }
+        SlopeOne slopeOne = new SlopeOne(Runtime.getRuntime().availableProcessors());
+        slopeOne.train(data);
+        Metrics.registerJmx();
+
+        RecommendationServer server = new RecommendationServer(slopeOne);
+        if (args.length > 1) {
+            server.setPort(Integer.parseInt(args[1]));
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.out.println("Serving " + data.size() + " users on port " + server.boundPort());
+    }
+}
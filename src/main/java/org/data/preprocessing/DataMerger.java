@@ -4,30 +4,279 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.data.storage.Csv;
+import org.data.storage.RatingRowConsumer;
+import org.data.storage.RatingStoreConverter;
 
-import java.io.File;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
+/**
+ * Merges a directory of rating shards, {@code .csv} files with {@code user,item,rating} rows and
+ * {@code .arff} files, into one {@code user,item,rating} CSV file. When a (user, item) pair is rated
+ * more than once the latest rating wins: shards are ordered by file name, rows by their position in
+ * the shard. Names are quoted with {@link Csv} where needed, so the merged file reads back through
+ * {@link RatingStoreConverter#readCsv}.
+ * <p>
+ * Shards are parsed concurrently and streamed into {@link #partitions} spill files by the hash of
+ * the (user, item) pair, then every spill file is de-duplicated on its own. Only one partition is
+ * held in memory at a time, so the shards may be much larger than the heap. Names are spilled as an
+ * {@code int} byte length followed by their UTF-8 bytes, so they may be of any length and contain any
+ * character.
+ */
 @AllArgsConstructor
 @NoArgsConstructor
 public class DataMerger {
 
+    private static final int SPILL_BUFFER = 1 << 15;
+
     @Getter @Setter
     String directoryPath;
 
-    public void Merge() throws URISyntaxException {
-        File dir = new File(Objects.requireNonNull(DataMerger.class.getResource(directoryPath)).toURI());
-        File[] directoryListing = dir.listFiles();
-        if (directoryListing != null) {
-            for (File child : directoryListing) {
-                // Do something with child
-            }
-        } else {
-            // Handle the case where dir is not really a directory.
-            // Checking dir.isDirectory() above would not be sufficient
-            // to avoid race conditions with another process that deletes
-            // directories.
+    /**
+     * Number of shards parsed at the same time {@code default = available processors}
+     */
+    @Getter @Setter
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of spill files, more partitions need less memory during de-duplication {@code default = 64}
+     */
+    @Getter @Setter
+    int partitions = 64;
+
+    /**
+     * Merge the shards of the resource directory {@link #directoryPath}
+     * @param output merged CSV file to create or overwrite
+     * @return number of merged ratings
+     * @throws URISyntaxException If provided path does not meet {@link java.net.URI} requirements
+     * @throws IOException If a shard can not be read or the output can not be written
+     */
+    public long Merge(Path output) throws URISyntaxException, IOException {
+        Path dir = Path.of(Objects.requireNonNull(DataMerger.class.getResource(directoryPath)).toURI());
+        return merge(dir, output);
+    }
+
+    /**
+     * Merge the shards of a directory
+     * @param directory directory with {@code .csv} and {@code .arff} shards, other files are ignored
+     * @param output merged CSV file to create or overwrite
+     * @return number of merged ratings
+     * @throws IOException If a shard can not be read or the output can not be written
+     */
+    public long merge(Path directory, Path output) throws IOException {
+        List<Path> shards;
+        try (Stream<Path> files = Files.list(directory)) {
+            shards = files.filter(DataMerger::isShard).sorted().toList();
+        }
+        Path spillDirectory = Files.createTempDirectory(output.toAbsolutePath().getParent(), "merge");
+        Spill[] spills = new Spill[partitions];
+        try {
+            for (int p = 0; p < partitions; p++) {
+                spills[p] = new Spill(spillDirectory.resolve(p + ".bin"));
+            }
+            spill(shards, spills);
+            for (Spill spill : spills) {
+                spill.close();
+            }
+            return reduce(spills, output);
+        } finally {
+            for (Spill spill : spills) {
+                if (spill != null) {
+                    spill.close();
+                    Files.deleteIfExists(spill.path);
+                }
+            }
+            Files.deleteIfExists(spillDirectory);
+        }
+    }
+
+    /**
+     * Parse every shard on the pool and route its rows to the spill files
+     */
+    private void spill(List<Path> shards, Spill[] spills) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, shards.size())));
+        try {
+            List<Future<Long>> results = new ArrayList<>(shards.size());
+            for (int s = 0; s < shards.size(); s++) {
+                long shard = s;
+                Path path = shards.get(s);
+                results.add(executor.submit(() -> spillShard(path, shard, spills)));
+            }
+            for (Future<Long> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while merging shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to merge shards", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stream one shard into per-partition buffers, full buffers are appended to the shared spill files
+     * @return number of read ratings
+     */
+    private long spillShard(Path path, long shard, Spill[] spills) throws IOException {
+        ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[partitions];
+        DataOutputStream[] outputs = new DataOutputStream[partitions];
+        for (int p = 0; p < partitions; p++) {
+            buffers[p] = new ByteArrayOutputStream(1024);
+            outputs[p] = new DataOutputStream(buffers[p]);
+        }
+        long[] row = {0};
+        long count = read(path, (user, item, rating) -> {
+            int p = Math.floorMod(31 * user.hashCode() + item.hashCode(), partitions);
+            DataOutputStream out = outputs[p];
+            writeName(out, user);
+            writeName(out, item);
+            out.writeLong(shard << 40 | row[0]++);
+            out.writeDouble(rating);
+            if (buffers[p].size() >= SPILL_BUFFER) {
+                spills[p].append(buffers[p]);
+            }
+        });
+        for (int p = 0; p < partitions; p++) {
+            spills[p].append(buffers[p]);
+        }
+        return count;
+    }
+
+    /**
+     * De-duplicate every spill file and write the surviving ratings
+     * @return number of written ratings
+     */
+    private static long reduce(Spill[] spills, Path output) throws IOException {
+        long count = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write("user,item,rating");
+            writer.newLine();
+            for (Spill spill : spills) {
+                Map<String, Latest> latest = new HashMap<>();
+                int length;
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(spill.path), 1 << 16))) {
+                    while (true) {
+                        try {
+                            length = in.readInt();
+                        } catch (EOFException end) {
+                            break;
+                        }
+                        String user = readName(in, length);
+                        String item = readName(in, in.readInt());
+                        long sequence = in.readLong();
+                        double rating = in.readDouble();
+                        // the user is length-prefixed, so names containing the separator can not collide
+                        latest.merge(user.length() + ":" + user + ',' + item, new Latest(user, item, sequence, rating),
+                                (a, b) -> a.sequence >= b.sequence ? a : b);
+                    }
+                }
+                StringBuilder line = new StringBuilder();
+                for (Latest rating : latest.values()) {
+                    line.setLength(0);
+                    Csv.appendField(line, rating.user);
+                    line.append(',');
+                    Csv.appendField(line, rating.item);
+                    line.append(',').append(rating.rating);
+                    writer.append(line);
+                    writer.newLine();
+                }
+                count += latest.size();
+            }
+        }
+        return count;
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long read(Path shard, RatingRowConsumer consumer) throws IOException {
+        String name = shard.getFileName().toString().toLowerCase();
+        if (name.endsWith(".arff")) {
+            return RatingStoreConverter.readArff(shard, consumer);
+        }
+        return RatingStoreConverter.readCsv(shard, consumer);
+    }
+
+    private static boolean isShard(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return Files.isRegularFile(path) && (name.endsWith(".csv") || name.endsWith(".arff"));
+    }
+
+    /**
+     * Latest rating of a pair and the position it was read at
+     */
+    private static class Latest {
+        private final String user;
+        private final String item;
+        private final long sequence;
+        private final double rating;
+
+        private Latest(String user, String item, long sequence, double rating) {
+            this.user = user;
+            this.item = item;
+            this.sequence = sequence;
+            this.rating = rating;
+        }
+    }
+
+    /**
+     * Spill file shared by all shard readers, appends are atomic per buffer
+     */
+    private static class Spill {
+        private final Path path;
+        private OutputStream out;
+
+        private Spill(Path path) throws IOException {
+            this.path = path;
+            this.out = Files.newOutputStream(path);
+        }
+
+        private synchronized void append(ByteArrayOutputStream buffer) throws IOException {
+            buffer.writeTo(out);
+            buffer.reset();
+        }
+
+        private synchronized void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
         }
     }
 }
@@ -0,0 +1,89 @@
+package org.data.preprocessing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+
+/**
+ * Numeric dataset stored column by column in primitive arrays, as read by {@link NumericTableReader}.
+ * Missing values are {@link Double#NaN}.
+ */
+@Getter
+@AllArgsConstructor
+public class NumericTable {
+
+    /**
+     * Relation name of an ARFF file, the file name or {@code data} for other sources
+     */
+    private final String relation;
+
+    /**
+     * Name of every column
+     */
+    private final String[] attributeNames;
+
+    /**
+     * Values of every column, {@code columns[column][row]}
+     */
+    private final double[][] columns;
+
+    /**
+     * Number of rows
+     */
+    private final int rows;
+
+    /**
+     * @return number of columns
+     */
+    public int numColumns() {
+        return attributeNames.length;
+    }
+
+    /**
+     * @param row row index
+     * @param column column index
+     * @return value of the cell
+     */
+    public double value(int row, int column) {
+        return columns[column][row];
+    }
+
+    /**
+     * @return all values in one row-major array, {@code values[row * numColumns() + column]}
+     */
+    public double[] rowMajor() {
+        int width = numColumns();
+        double[] values = new double[rows * width];
+        for (int c = 0; c < width; c++) {
+            double[] column = columns[c];
+            for (int r = 0; r < rows; r++) {
+                values[r * width + c] = column[r];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Convert to Weka instances with one numeric attribute per column, {@code NaN} becomes missing
+     * @return new dataset
+     */
+    public Instances toInstances() {
+        ArrayList<Attribute> attributes = new ArrayList<>(attributeNames.length);
+        for (String name : attributeNames) {
+            attributes.add(new Attribute(name));
+        }
+        Instances instances = new Instances(relation, attributes, rows);
+        for (int r = 0; r < rows; r++) {
+            double[] values = new double[attributeNames.length];
+            for (int c = 0; c < values.length; c++) {
+                values[c] = Double.isNaN(columns[c][r]) ? weka.core.Utils.missingValue() : columns[c][r];
+            }
+            instances.add(new DenseInstance(1.0, values));
+        }
+        return instances;
+    }
+}
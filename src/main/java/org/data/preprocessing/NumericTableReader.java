@@ -0,0 +1,458 @@
+package org.data.preprocessing;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Fast reader for numeric ARFF and CSV files. The format is detected from the content: a file whose
+ * first line starts with {@code @} is ARFF, anything else CSV with an optional header row.
+ * <p>
+ * The data section is split into chunks at line boundaries and the chunks are parsed in parallel
+ * straight from a memory-mapped file, or from the bytes of a stream, into primitive arrays. Only
+ * dense rows of numeric values separated by commas are supported, {@code ?} and empty fields are
+ * missing values. Decimal numbers with up to 15 significant digits are converted without creating
+ * strings, all other numbers fall back to {@link Double#parseDouble(String)}, so results equal the
+ * JDK conversion.
+ */
+@Setter
+@Getter
+public class NumericTableReader {
+
+    private static final int WINDOW = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Number of chunks parsed at the same time {@code default = available processors}
+     */
+    int parallelism;
+
+    /**
+     * Smallest chunk of the data section handed to one worker {@code default = 1 MiB}
+     */
+    int minChunkBytes;
+
+    /**
+     * Constructs a new NumericTableReader with default values
+     */
+    public NumericTableReader() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.minChunkBytes = 1 << 20;
+    }
+
+    /**
+     * Read a file, data chunks are memory-mapped one by one
+     * @param path ARFF or CSV file on any filesystem that supports mapping
+     * @return parsed table
+     * @throws IOException If the file can not be read or contains non numeric data
+     */
+    public NumericTable read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input input = new Input() {
+                @Override
+                public long size() throws IOException {
+                    return channel.size();
+                }
+
+                @Override
+                public ByteBuffer map(long start, long length) throws IOException {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+            };
+            Path name = path.getFileName();
+            return parse(input, name == null ? "data" : name.toString());
+        }
+    }
+
+    /**
+     * Read a stream completely into memory and parse it
+     * @param stream ARFF or CSV content, not closed
+     * @return parsed table
+     * @throws IOException If the stream can not be read or contains non numeric data
+     */
+    public NumericTable read(InputStream stream) throws IOException {
+        byte[] bytes = stream.readAllBytes();
+        Input input = new Input() {
+            @Override
+            public long size() {
+                return bytes.length;
+            }
+
+            @Override
+            public ByteBuffer map(long start, long length) {
+                return ByteBuffer.wrap(bytes, (int) start, (int) length).slice();
+            }
+        };
+        return parse(input, "data");
+    }
+
+    private NumericTable parse(Input input, String relation) throws IOException {
+        Header header = header(input, relation);
+        if (header.names.isEmpty()) {
+            throw new IOException("No attributes declared");
+        }
+        long[] bounds = chunks(input, header.dataStart);
+        int chunks = bounds.length - 1;
+        int width = header.names.size();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, chunks)));
+        try {
+            Chunk[] parsed = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> parseChunk(input, bounds[c], bounds[c + 1], width, header.arff))
+                    .toArray(Chunk[]::new)).join();
+            long total = 0;
+            int[] firstRow = new int[chunks];
+            for (int c = 0; c < chunks; c++) {
+                if (parsed[c].error != null) {
+                    throw parsed[c].error;
+                }
+                firstRow[c] = (int) total;
+                total += parsed[c].rows;
+            }
+            if (total > Integer.MAX_VALUE) {
+                throw new IOException("Too many rows for one table: " + total);
+            }
+            int rows = (int) total;
+            double[][] columns = new double[width][rows];
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                double[] values = parsed[c].values;
+                for (int r = 0; r < parsed[c].rows; r++) {
+                    for (int col = 0; col < width; col++) {
+                        columns[col][firstRow[c] + r] = values[r * width + col];
+                    }
+                }
+            })).join();
+            return new NumericTable(header.relation, header.names.toArray(new String[0]), columns, rows);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Read the ARFF header or the CSV header row and find where the data starts
+     */
+    private Header header(Input input, String relation) throws IOException {
+        long size = input.size();
+        long position = 0;
+        Header header = new Header();
+        header.relation = relation;
+        while (position < size) {
+            long end = lineEnd(input, position, size);
+            String line = new String(bytes(input, position, end - position), StandardCharsets.UTF_8).trim();
+            long next = Math.min(size, end + 1);
+            if (line.isEmpty() || line.startsWith("%")) {
+                position = next;
+                continue;
+            }
+            header.arff = header.arff || line.startsWith("@");
+            if (!header.arff) {
+                List<String> fields = Arrays.stream(line.split(",", -1)).map(String::trim).toList();
+                boolean numeric = fields.stream().allMatch(NumericTableReader::isNumber);
+                for (int i = 0; i < fields.size(); i++) {
+                    header.names.add(numeric ? "x" + i : fields.get(i));
+                }
+                header.dataStart = numeric ? position : next;
+                return header;
+            }
+            String keyword = line.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+            switch (keyword) {
+                case "@relation" -> header.relation = unquote(line.substring(keyword.length()).trim());
+                case "@attribute" -> header.names.add(attribute(line.substring(keyword.length()).trim()));
+                case "@data" -> {
+                    header.dataStart = next;
+                    return header;
+                }
+                default -> throw new IOException("Unexpected ARFF header line: " + line);
+            }
+            position = next;
+        }
+        if (header.arff) {
+            throw new IOException("ARFF file has no @data section");
+        }
+        header.dataStart = size;
+        return header;
+    }
+
+    /**
+     * Split the data section into chunks that end right after a line break
+     */
+    private long[] chunks(Input input, long dataStart) throws IOException {
+        long size = input.size();
+        long length = size - dataStart;
+        long chunk = Math.max(minChunkBytes, (length + parallelism * 4L - 1) / Math.max(1, parallelism * 4L));
+        chunk = Math.min(chunk, Integer.MAX_VALUE - WINDOW);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long position = dataStart;
+        while (size - position > chunk) {
+            long end = lineEnd(input, position + chunk, size);
+            if (end >= size) {
+                break;
+            }
+            position = end + 1;
+            bounds.add(position);
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Chunk parseChunk(Input input, long start, long end, int width, boolean arff) {
+        Chunk chunk = new Chunk();
+        chunk.values = new double[width * 1024];
+        try {
+            ByteBuffer buffer = input.map(start, end - start);
+            int limit = buffer.limit();
+            int position = 0;
+            while (position < limit) {
+                int lineEnd = position;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int first = skipBlanks(buffer, position, lineEnd);
+                if (first < lineEnd && buffer.get(first) != '\r' && !(arff && buffer.get(first) == '%')) {
+                    if (buffer.get(first) == '{') {
+                        throw new IOException("Sparse ARFF rows are not supported at byte " + (start + first));
+                    }
+                    parseRow(buffer, first, lineEnd, width, chunk, start);
+                }
+                position = lineEnd + 1;
+            }
+        } catch (IOException e) {
+            chunk.error = e;
+        }
+        return chunk;
+    }
+
+    private static void parseRow(ByteBuffer buffer, int from, int to, int width, Chunk chunk, long offset)
+            throws IOException {
+        if (chunk.values.length < (chunk.rows + 1) * width) {
+            chunk.values = Arrays.copyOf(chunk.values, chunk.values.length << 1);
+        }
+        int base = chunk.rows * width;
+        int field = 0;
+        int position = from;
+        while (true) {
+            int end = position;
+            while (end < to && buffer.get(end) != ',') {
+                end++;
+            }
+            if (field == width) {
+                throw new IOException("Expected " + width + " values at byte " + (offset + from));
+            }
+            chunk.values[base + field++] = parseNumber(buffer, position, end, offset);
+            if (end >= to) {
+                break;
+            }
+            position = end + 1;
+        }
+        if (field != width) {
+            throw new IOException("Expected " + width + " values at byte " + (offset + from));
+        }
+        chunk.rows++;
+    }
+
+    /**
+     * Parse a decimal number, exact for up to 15 significant digits and powers of ten up to 22,
+     * other numbers are handed to the JDK
+     */
+    static double parseNumber(ByteBuffer buffer, int from, int to, long offset) throws IOException {
+        from = skipBlanks(buffer, from, to);
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to || (to - from == 1 && buffer.get(from) == '?')) {
+            return Double.NaN;
+        }
+        int position = from;
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        while (position < to && (b = buffer.get(position)) >= '0' && b <= '9') {
+            anyDigit = true;
+            if (mantissa != 0 || b != '0') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+            }
+            position++;
+            if (digits > 15) {
+                return slowParse(buffer, from, to, offset);
+            }
+        }
+        if (position < to && buffer.get(position) == '.') {
+            position++;
+            while (position < to && (b = buffer.get(position)) >= '0' && b <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                }
+                exponent--;
+                position++;
+                if (digits > 15) {
+                    return slowParse(buffer, from, to, offset);
+                }
+            }
+        }
+        if (!anyDigit) {
+            return slowParse(buffer, from, to, offset);
+        }
+        if (position < to && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negativeExponent = buffer.get(position) == '-';
+                position++;
+            }
+            int value = 0;
+            int start = position;
+            while (position < to && (b = buffer.get(position)) >= '0' && b <= '9' && value < 10000) {
+                value = value * 10 + (b - '0');
+                position++;
+            }
+            if (position == start) {
+                return slowParse(buffer, from, to, offset);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (position != to || exponent < -22 || exponent > 22) {
+            return slowParse(buffer, from, to, offset);
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(ByteBuffer buffer, int from, int to, long offset) throws IOException {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a number '" + text + "' at byte " + (offset + from), e);
+        }
+    }
+
+    private static String attribute(String declaration) throws IOException {
+        String name;
+        String type;
+        char quote = declaration.isEmpty() ? 0 : declaration.charAt(0);
+        if (quote == '\'' || quote == '"') {
+            int close = declaration.indexOf(quote, 1);
+            if (close < 0) {
+                throw new IOException("Unterminated attribute name: " + declaration);
+            }
+            name = declaration.substring(1, close);
+            type = declaration.substring(close + 1).trim();
+        } else {
+            String[] parts = declaration.split("\\s+", 2);
+            name = parts[0];
+            type = parts.length > 1 ? parts[1].trim() : "";
+        }
+        String lower = type.toLowerCase(Locale.ROOT);
+        if (!lower.equals("numeric") && !lower.equals("real") && !lower.equals("integer")) {
+            throw new IOException("Only numeric attributes are supported, " + name + " is " + type);
+        }
+        return name;
+    }
+
+    private static String unquote(String text) {
+        if (text.length() >= 2 && (text.charAt(0) == '\'' || text.charAt(0) == '"')
+                && text.charAt(text.length() - 1) == text.charAt(0)) {
+            return text.substring(1, text.length() - 1);
+        }
+        return text;
+    }
+
+    private static boolean isNumber(String field) {
+        if (field.isEmpty() || field.equals("?")) {
+            return true;
+        }
+        try {
+            Double.parseDouble(field);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return position of the next line break at or after {@code from}, {@code size} if there is none
+     */
+    private static long lineEnd(Input input, long from, long size) throws IOException {
+        long position = from;
+        while (position < size) {
+            ByteBuffer window = input.map(position, Math.min(WINDOW, size - position));
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += window.limit();
+        }
+        return size;
+    }
+
+    private static byte[] bytes(Input input, long start, long length) throws IOException {
+        byte[] bytes = new byte[(int) length];
+        input.map(start, length).get(0, bytes);
+        return bytes;
+    }
+
+    private static int skipBlanks(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Random access to the bytes of a file or stream
+     */
+    private interface Input {
+        long size() throws IOException;
+
+        ByteBuffer map(long start, long length) throws IOException;
+    }
+
+    private static class Header {
+        private String relation;
+        private final List<String> names = new ArrayList<>();
+        private boolean arff;
+        private long dataStart;
+    }
+
+    /**
+     * Row-major values of one chunk
+     */
+    private static class Chunk {
+        private double[] values;
+        private int rows;
+        private IOException error;
+    }
+}
@@ -0,0 +1,117 @@
+package org.data.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 style quoting of CSV fields. A field is quoted when it contains a separator, a quote, a
+ * line break or leading or trailing white space, quotes inside it are doubled. Unquoted fields are
+ * trimmed when parsed, quoted fields are kept as they are.
+ */
+public final class Csv {
+
+    private Csv() {
+    }
+
+    /**
+     * Append a field, quoted if it could not be read back as it is
+     * @param out line to append to
+     * @param field field value
+     */
+    public static void appendField(StringBuilder out, String field) {
+        if (!needsQuotes(field)) {
+            out.append(field);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * @param field field value
+     * @return field as written by {@link #appendField(StringBuilder, String)}
+     */
+    public static String field(String field) {
+        if (!needsQuotes(field)) {
+            return field;
+        }
+        StringBuilder out = new StringBuilder(field.length() + 2);
+        appendField(out, field);
+        return out.toString();
+    }
+
+    /**
+     * Split a record into its fields
+     * @param record one or more physical lines joined by {@code '\n'}
+     * @return fields, or {@code null} if a quoted field is still open and continues on the next line
+     * @throws IllegalArgumentException If a closing quote is followed by something else than a separator
+     */
+    public static List<String> parse(String record) {
+        List<String> fields = new ArrayList<>();
+        int i = 0;
+        int length = record.length();
+        while (true) {
+            int start = i;
+            while (i < length && record.charAt(i) != ',' && record.charAt(i) != '"') {
+                i++;
+            }
+            if (i < length && record.charAt(i) == '"' && record.substring(start, i).isBlank()) {
+                StringBuilder field = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return null;
+                    }
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && record.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                while (i < length && record.charAt(i) != ',') {
+                    if (!Character.isWhitespace(record.charAt(i))) {
+                        throw new IllegalArgumentException("Unexpected character after a quoted field at " + i);
+                    }
+                    i++;
+                }
+                fields.add(field.toString());
+            } else {
+                while (i < length && record.charAt(i) != ',') {
+                    i++;
+                }
+                fields.add(record.substring(start, i).trim());
+            }
+            if (i >= length) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static boolean needsQuotes(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        if (Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
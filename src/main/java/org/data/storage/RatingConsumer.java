@@ -0,0 +1,15 @@
+package org.data.storage;
+
+/**
+ * Receives ratings read from a rating store
+ */
+@FunctionalInterface
+public interface RatingConsumer {
+
+    /**
+     * @param user user id
+     * @param item item id
+     * @param rating rating value
+     */
+    void accept(int user, int item, float rating);
+}
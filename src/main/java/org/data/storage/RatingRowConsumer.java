@@ -0,0 +1,18 @@
+package org.data.storage;
+
+import java.io.IOException;
+
+/**
+ * Receives ratings parsed from a text rating file
+ */
+@FunctionalInterface
+public interface RatingRowConsumer {
+
+    /**
+     * @param user user name
+     * @param item item name
+     * @param rating rating value
+     * @throws IOException If the rating can not be written on
+     */
+    void accept(String user, String item, double rating) throws IOException;
+}
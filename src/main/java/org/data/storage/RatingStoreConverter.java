@@ -0,0 +1,154 @@
+package org.data.storage;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Converts text rating files into the binary rating store. Both converters stream their input, one
+ * row at a time, so the source may be larger than the heap.
+ */
+public class RatingStoreConverter {
+
+    private RatingStoreConverter() {
+    }
+
+    /**
+     * Convert a CSV file with {@code user,item,rating} rows, see {@link #readCsv(Path, RatingRowConsumer)}
+     * @param csv source file
+     * @param store target store
+     * @return number of converted ratings
+     * @throws IOException If a file can not be accessed or a row is malformed
+     */
+    public static long fromCsv(Path csv, Path store) throws IOException {
+        try (RatingStoreWriter writer = new RatingStoreWriter(store)) {
+            readCsv(csv, (user, item, rating) -> writer.write(user, item, (float) rating));
+            return writer.count();
+        }
+    }
+
+    /**
+     * Convert an ARFF file, see {@link #readArff(Path, RatingRowConsumer)}
+     * @param arff source file
+     * @param store target store
+     * @return number of converted ratings
+     * @throws IOException If a file can not be accessed or the rating attribute is not numeric
+     */
+    public static long fromArff(Path arff, Path store) throws IOException {
+        try (RatingStoreWriter writer = new RatingStoreWriter(store)) {
+            readArff(arff, (user, item, rating) -> writer.write(user, item, (float) rating));
+            return writer.count();
+        }
+    }
+
+    /**
+     * Stream a CSV file with {@code user,item,rating} rows. A first row whose rating is not a number
+     * is treated as a header and blank lines are skipped. Fields may be quoted as written by
+     * {@link Csv#appendField(StringBuilder, String)}, a quoted field may span several lines.
+     * @param csv source file
+     * @param consumer receives every rating in file order
+     * @return number of read ratings
+     * @throws IOException If the file can not be accessed or a row is malformed
+     */
+    public static long readCsv(Path csv, RatingRowConsumer consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            long row = 0;
+            long count = 0;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long first = row;
+                List<String> fields;
+                try {
+                    while ((fields = Csv.parse(line)) == null) {
+                        String next = reader.readLine();
+                        if (next == null) {
+                            throw new IOException("Unterminated quoted field at line " + first + " of " + csv);
+                        }
+                        line = line + '\n' + next;
+                        row++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Malformed quoted field at line " + row + " of " + csv, e);
+                }
+                if (fields.size() < 3) {
+                    throw new IOException("Expected user,item,rating at line " + row + " of " + csv);
+                }
+                double rating;
+                try {
+                    rating = Double.parseDouble(fields.get(2));
+                } catch (NumberFormatException e) {
+                    if (row == 1) {
+                        continue;
+                    }
+                    throw new IOException("Invalid rating at line " + row + " of " + csv, e);
+                }
+                consumer.accept(fields.get(0), fields.get(1), rating);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Stream an ARFF file through Weka's incremental loader. Attributes named {@code user},
+     * {@code item} and {@code rating} are used when present, otherwise the first three attributes.
+     * Rows with a missing value are skipped.
+     * @param arff source file
+     * @param consumer receives every rating in file order
+     * @return number of read ratings
+     * @throws IOException If the file can not be accessed or the rating attribute is not numeric
+     */
+    public static long readArff(Path arff, RatingRowConsumer consumer) throws IOException {
+        ArffLoader loader = new ArffLoader();
+        loader.setSource(arff.toFile());
+        try {
+            Instances structure = loader.getStructure();
+            if (structure.numAttributes() < 3) {
+                throw new IOException("Expected user, item and rating attributes in " + arff);
+            }
+            Attribute user = attribute(structure, "user", 0);
+            Attribute item = attribute(structure, "item", 1);
+            Attribute rating = attribute(structure, "rating", 2);
+            if (!rating.isNumeric()) {
+                throw new IOException("Rating attribute is not numeric in " + arff);
+            }
+            long count = 0;
+            Instance row;
+            while ((row = loader.getNextInstance(structure)) != null) {
+                if (row.isMissing(user) || row.isMissing(item) || row.isMissing(rating)) {
+                    continue;
+                }
+                consumer.accept(name(row, user), name(row, item), row.value(rating));
+                count++;
+            }
+            return count;
+        } finally {
+            loader.reset();
+        }
+    }
+
+    private static Attribute attribute(Instances structure, String name, int fallback) {
+        Attribute attribute = structure.attribute(name);
+        return attribute != null ? attribute : structure.attribute(fallback);
+    }
+
+    private static String name(Instance row, Attribute attribute) {
+        if (attribute.isNumeric()) {
+            double value = row.value(attribute);
+            return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+        }
+        return row.stringValue(attribute);
+    }
+}
@@ -0,0 +1,29 @@
+package org.data.storage;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary rating store, all values little endian:
+ * <pre>
+ * header      int magic, int version
+ * blocks      int count, int[count] users, int[count] items, float[count] ratings   (repeated)
+ * end         int 0
+ * dictionary  int userCount, userCount x (int length, UTF-8 name),
+ *             int itemCount, itemCount x (int length, UTF-8 name)
+ * footer      long dictionaryOffset, long ratingCount, int magic
+ * </pre>
+ * Every block is columnar, so a reader can map it and view each column as a primitive buffer.
+ */
+final class RatingStoreFormat {
+
+    static final int MAGIC = 0x52544E47;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int FOOTER_BYTES = 20;
+    static final int RECORD_BYTES = 12;
+    static final int DEFAULT_BLOCK = 65536;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private RatingStoreFormat() {
+    }
+}
@@ -0,0 +1,228 @@
+package org.data.storage;
+
+import org.main.Item;
+import org.main.ItemDictionary;
+import org.main.RatedUser;
+import org.main.User;
+import org.main.UserRatings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.data.storage.RatingStoreFormat.*;
+
+/**
+ * Reads a rating store written by {@link RatingStoreWriter}. Rating blocks are memory-mapped one at
+ * a time and read through primitive buffer views, so files larger than the heap can be streamed
+ * without copying them.
+ */
+public class RatingStoreReader implements Closeable {
+    private final FileChannel channel;
+    private final long dictionaryOffset;
+    private final long count;
+    private final List<String> userNames;
+    private final List<String> itemNames;
+
+    /**
+     * Open a store and load its dictionary
+     * @param path store file
+     * @throws IOException If the file can not be read or is not a rating store
+     */
+    public RatingStoreReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4 + FOOTER_BYTES) {
+                throw new IOException("Not a rating store: " + path);
+            }
+            ByteBuffer header = read(0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a rating store or unsupported version: " + path);
+            }
+            ByteBuffer footer = read(size - FOOTER_BYTES, FOOTER_BYTES);
+            this.dictionaryOffset = footer.getLong();
+            this.count = footer.getLong();
+            if (footer.getInt() != MAGIC || dictionaryOffset < HEADER_BYTES || dictionaryOffset > size - FOOTER_BYTES) {
+                throw new IOException("Truncated rating store: " + path);
+            }
+            MappedByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset,
+                    size - FOOTER_BYTES - dictionaryOffset);
+            dictionary.order(ORDER);
+            this.userNames = readNames(dictionary);
+            this.itemNames = readNames(dictionary);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of stored ratings
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return user names, indexed by user id
+     */
+    public List<String> getUserNames() {
+        return userNames;
+    }
+
+    /**
+     * @return item names, indexed by item id
+     */
+    public List<String> getItemNames() {
+        return itemNames;
+    }
+
+    /**
+     * @return item dictionary whose ids match the stored item ids
+     */
+    public ItemDictionary itemDictionary() {
+        ItemDictionary dictionary = new ItemDictionary();
+        for (String name : itemNames) {
+            dictionary.intern(new Item(name));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Visit every rating in file order
+     * @param consumer receives the ratings
+     * @throws IOException If the file can not be read
+     */
+    public void forEach(RatingConsumer consumer) throws IOException {
+        Block block = new Block();
+        while (block.next()) {
+            for (int i = 0; i < block.size; i++) {
+                consumer.accept(block.users.get(i), block.items.get(i), block.ratings.get(i));
+            }
+        }
+    }
+
+    /**
+     * Stream users with their ratings, for example into
+     * {@link org.main.SlopeOneModel#train(ItemDictionary, Stream)}. Consecutive ratings of the same
+     * user form one {@link RatedUser}, item ids match {@link #itemDictionary()}.
+     * @return lazy stream of users, read errors surface as {@link UncheckedIOException}
+     */
+    public Stream<RatedUser> users() {
+        Iterator<RatedUser> iterator = new Iterator<>() {
+            private final Block block = new Block();
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (index >= block.size) {
+                        if (!block.next()) {
+                            return false;
+                        }
+                        index = 0;
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public RatedUser next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int user = block.users.get(index);
+                UserRatings ratings = new UserRatings();
+                while (hasNext() && block.users.get(index) == user) {
+                    int item = block.items.get(index);
+                    int existing = ratings.indexOf(item);
+                    if (existing < 0) {
+                        ratings.add(item, block.ratings.get(index));
+                    } else {
+                        ratings.set(existing, block.ratings.get(index));
+                    }
+                    index++;
+                }
+                return new RatedUser(new User(userNames.get(user)), ratings);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of rating store");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static List<String> readNames(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            names.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return names;
+    }
+
+    /**
+     * Cursor over the mapped rating blocks
+     */
+    private class Block {
+        private long position = HEADER_BYTES;
+        private int size;
+        private IntBuffer users;
+        private IntBuffer items;
+        private FloatBuffer ratings;
+
+        private boolean next() throws IOException {
+            if (position >= dictionaryOffset) {
+                size = 0;
+                return false;
+            }
+            size = read(position, 4).getInt();
+            if (size == 0) {
+                position = dictionaryOffset;
+                return false;
+            }
+            long bytes = (long) size * RECORD_BYTES;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position + 4, bytes);
+            mapped.order(ORDER);
+            users = mapped.slice(0, size * 4).order(ORDER).asIntBuffer();
+            items = mapped.slice(size * 4, size * 4).order(ORDER).asIntBuffer();
+            ratings = mapped.slice(size * 8, size * 4).order(ORDER).asFloatBuffer();
+            position += 4 + bytes;
+            return true;
+        }
+    }
+}
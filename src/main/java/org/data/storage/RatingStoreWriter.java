@@ -0,0 +1,170 @@
+package org.data.storage;
+
+import org.main.NameRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.data.storage.RatingStoreFormat.*;
+
+/**
+ * Streams ratings into the binary format described by {@link RatingStoreFormat}. Ratings are
+ * buffered one block at a time, so memory use does not depend on the number of ratings. Users and
+ * items get dense ids in order of first appearance.
+ * <p>
+ * Slope One training expects the ratings of one user to be written consecutively.
+ */
+public class RatingStoreWriter implements Closeable {
+    private final FileChannel channel;
+    private final int[] users;
+    private final int[] items;
+    private final float[] ratings;
+    private final ByteBuffer buffer;
+    private final NameRegistry userNames = new NameRegistry();
+    private final NameRegistry itemNames = new NameRegistry();
+    private int size;
+    private long count;
+
+    /**
+     * Constructs a writer with the default block size
+     * @param path file to create or overwrite
+     * @throws IOException If the file can not be written
+     */
+    public RatingStoreWriter(Path path) throws IOException {
+        this(path, DEFAULT_BLOCK);
+    }
+
+    /**
+     * Constructs a writer
+     * @param path file to create or overwrite
+     * @param blockSize ratings per block
+     * @throws IOException If the file can not be written
+     */
+    public RatingStoreWriter(Path path, int blockSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.users = new int[blockSize];
+        this.items = new int[blockSize];
+        this.ratings = new float[blockSize];
+        this.buffer = ByteBuffer.allocateDirect(4 + blockSize * RECORD_BYTES).order(ORDER);
+        buffer.putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(buffer);
+    }
+
+    /**
+     * @param name user name
+     * @return dense id of the user, assigned on first use
+     */
+    public int userId(String name) {
+        return userNames.intern(name);
+    }
+
+    /**
+     * @param name item name
+     * @return dense id of the item, assigned on first use
+     */
+    public int itemId(String name) {
+        return itemNames.intern(name);
+    }
+
+    /**
+     * Append a rating by names
+     * @param user user name
+     * @param item item name
+     * @param rating rating value
+     * @throws IOException If the file can not be written
+     */
+    public void write(String user, String item, float rating) throws IOException {
+        write(userId(user), itemId(item), rating);
+    }
+
+    /**
+     * Append a rating by ids obtained from {@link #userId(String)} and {@link #itemId(String)}
+     * @param user user id
+     * @param item item id
+     * @param rating rating value
+     * @throws IOException If the file can not be written
+     */
+    public void write(int user, int item, float rating) throws IOException {
+        users[size] = user;
+        items[size] = item;
+        ratings[size++] = rating;
+        count++;
+        if (size == users.length) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * @return number of ratings written so far
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Write the last block, the dictionary and the footer
+     * @throws IOException If the file can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            buffer.clear();
+            buffer.putInt(0).flip();
+            writeFully(buffer);
+            long dictionaryOffset = channel.position();
+            writeNames(userNames);
+            writeNames(itemNames);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES).order(ORDER);
+            footer.putLong(dictionaryOffset).putLong(count).putInt(MAGIC).flip();
+            writeFully(footer);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        buffer.clear();
+        buffer.putInt(size);
+        buffer.asIntBuffer().put(users, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.asIntBuffer().put(items, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.asFloatBuffer().put(ratings, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.flip();
+        writeFully(buffer);
+        size = 0;
+    }
+
+    private void writeNames(NameRegistry names) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(1 << 16).order(ORDER);
+        out.putInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            byte[] bytes = names.name(i).getBytes(StandardCharsets.UTF_8);
+            if (out.remaining() < 4 + bytes.length) {
+                out.flip();
+                writeFully(out);
+                out = ByteBuffer.allocate(Math.max(1 << 16, 4 + bytes.length)).order(ORDER);
+            }
+            out.putInt(bytes.length).put(bytes);
+        }
+        out.flip();
+        writeFully(out);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.main;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of a {@link BatchScorer} run
+ */
+@Getter
+@AllArgsConstructor
+public class BatchReport {
+
+    /**
+     * Number of scored users
+     */
+    private final long users;
+
+    /**
+     * Number of written predictions
+     */
+    private final long predictions;
+
+    /**
+     * Wall clock time of the run in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * @return scored users per second
+     */
+    public double usersPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : users * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d users, %d predictions in %.3f s (%.0f users/sec)",
+                users, predictions, elapsedNanos / 1e9, usersPerSecond());
+    }
+}
@@ -0,0 +1,251 @@
+package org.main;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.data.storage.Csv;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Nightly batch scoring: predicts every user of a model and streams the predictions to disk as they
+ * are computed, nothing is collected in memory. Users are split into {@link #parallelism} ranges of
+ * consecutive users, every worker writes its own part file in the output directory:
+ * <pre>
+ * CSV     part-00000.csv  user,item,score rows, scores with three decimals
+ * BINARY  part-00000.bin  per user: int byte length and UTF-8 bytes of the user name, int n,
+ *                         n x (int item id, float score)
+ *         items.csv       id,name of every item id used by the binary parts
+ * </pre>
+ * Names in the CSV files are quoted with {@link Csv} where needed.
+ */
+@Setter
+@Getter
+public class BatchScorer {
+
+    private static final ThreadLocal<DecimalFormat> FIXED = ThreadLocal.withInitial(
+            () -> new DecimalFormat("#0.000", DecimalFormatSymbols.getInstance(Locale.ROOT)));
+
+    /**
+     * Largest magnitude formatted without {@link #FIXED}, its shortest decimal form always reaches the third decimal
+     */
+    private static final double FAST_FIXED_LIMIT = 1e12;
+
+    /**
+     * Output formats
+     */
+    public enum Format { CSV, BINARY }
+
+    /**
+     * Number of workers and part files {@code default = available processors}
+     */
+    int parallelism;
+
+    /**
+     * Best scored items written per user, {@code 0} writes every prediction {@code default = 0}
+     */
+    int topN;
+
+    /**
+     * Output format {@code default = CSV}
+     */
+    Format format;
+
+    /**
+     * Constructs a new BatchScorer with default values
+     */
+    public BatchScorer() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.topN = 0;
+        this.format = Format.CSV;
+    }
+
+    /**
+     * Score every user of a model
+     * @param model trained model or snapshot, it must not change while scoring
+     * @param directory output directory, created if missing
+     * @return number of scored users, written predictions and throughput
+     * @throws IOException If a part file can not be written
+     */
+    public BatchReport score(SlopeOneModel model, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        if (format == Format.BINARY) {
+            writeItems(model.getDictionary(), directory.resolve("items.csv"));
+        }
+        int users = model.users().size();
+        int workers = Math.max(1, Math.min(parallelism, users));
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            long predictions = pool.submit(() -> IntStream.range(0, workers).parallel()
+                    .mapToLong(part -> {
+                        int from = (int) ((long) users * part / workers);
+                        int to = (int) ((long) users * (part + 1) / workers);
+                        try {
+                            return scorePart(model, from, to, directory.resolve(partName(part)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .sum()).join();
+            return new BatchReport(users, predictions, System.nanoTime() - start);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private long scorePart(SlopeOneModel model, int from, int to, Path file) throws IOException {
+        if (format == Format.BINARY) {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                return scoreBinary(model, from, to, out);
+            }
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("user,item,score\n");
+            return scoreCsv(model, from, to, out);
+        }
+    }
+
+    private long scoreCsv(SlopeOneModel model, int from, int to, Writer out) throws IOException {
+        ItemDictionary dictionary = model.getDictionary();
+        PredictionScratch scratch = new PredictionScratch();
+        StringBuilder line = new StringBuilder(64);
+        long written = 0;
+        for (int u = from; u < to; u++) {
+            String user = model.userIds().name(u);
+            UserRatings ratings = model.users().get(u);
+            if (topN > 0) {
+                for (Recommendation recommendation : model.recommend(ratings.ids(), ratings.ratings(),
+                        ratings.size(), topN)) {
+                    writeCsv(out, line, user, recommendation.getItem().getItemName(), recommendation.getScore());
+                    written++;
+                }
+                continue;
+            }
+            model.predict(ratings.ids(), ratings.ratings(), ratings.size(), scratch);
+            for (int i = 0; i < scratch.touchedSize(); i++) {
+                int k = scratch.touched(i);
+                if (scratch.isPredicted(k)) {
+                    writeCsv(out, line, user, dictionary.item(k).getItemName(), scratch.prediction(k));
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    private long scoreBinary(SlopeOneModel model, int from, int to, DataOutputStream out) throws IOException {
+        ItemDictionary dictionary = model.getDictionary();
+        PredictionScratch scratch = new PredictionScratch();
+        long written = 0;
+        for (int u = from; u < to; u++) {
+            byte[] name = model.userIds().name(u).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+            UserRatings ratings = model.users().get(u);
+            if (topN > 0) {
+                List<Recommendation> recommendations = model.recommend(ratings.ids(), ratings.ratings(),
+                        ratings.size(), topN);
+                out.writeInt(recommendations.size());
+                for (Recommendation recommendation : recommendations) {
+                    out.writeInt(dictionary.idOf(recommendation.getItem()));
+                    out.writeFloat((float) recommendation.getScore());
+                }
+                written += recommendations.size();
+                continue;
+            }
+            model.predict(ratings.ids(), ratings.ratings(), ratings.size(), scratch);
+            int n = 0;
+            for (int i = 0; i < scratch.touchedSize(); i++) {
+                if (scratch.isPredicted(scratch.touched(i))) {
+                    n++;
+                }
+            }
+            out.writeInt(n);
+            for (int i = 0; i < scratch.touchedSize(); i++) {
+                int k = scratch.touched(i);
+                if (scratch.isPredicted(k)) {
+                    out.writeInt(k);
+                    out.writeFloat((float) scratch.prediction(k));
+                }
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    private static void writeCsv(Writer out, StringBuilder line, String user, String item, double score)
+            throws IOException {
+        line.setLength(0);
+        Csv.appendField(line, user);
+        line.append(',');
+        Csv.appendField(line, item);
+        line.append(',');
+        appendFixed(line, score);
+        line.append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Append a value rounded half even to three decimals, byte-identical to {@code DecimalFormat("#0.000")}
+     * with {@link Locale#ROOT} symbols. Values that are not close to a tie are formatted without the
+     * {@code DecimalFormat}, ties, huge values, NaN and infinities are left to it.
+     */
+    static void appendFixed(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if (!(magnitude < FAST_FIXED_LIMIT)) {
+            out.append(FIXED.get().format(value));
+            return;
+        }
+        double scaled = magnitude * 1000.0;
+        double floor = Math.floor(scaled);
+        double tie = scaled - floor - 0.5;
+        // the product is off by half an ulp, the exact value may be on either side of a tie this close
+        if (Math.abs(tie) <= 4 * Math.ulp(scaled)) {
+            out.append(FIXED.get().format(value));
+            return;
+        }
+        long rounded = (long) floor + (tie > 0 ? 1 : 0);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            out.append('-');
+        }
+        long fraction = rounded % 1000;
+        out.append(rounded / 1000).append('.');
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static void writeItems(ItemDictionary dictionary, Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("id,name\n");
+            for (int i = 0; i < dictionary.size(); i++) {
+                out.write(i + "," + Csv.field(dictionary.item(i).getItemName()) + "\n");
+            }
+        }
+    }
+
+    private String partName(int part) {
+        return String.format("part-%05d.%s", part, format == Format.BINARY ? "bin" : "csv");
+    }
+}
@@ -0,0 +1,52 @@
+package org.main;
+
+import lombok.*;
+
+/**
+ * Bi-polar Slope One: a user's ratings are split into liked items, rated above the user's average,
+ * and disliked items, rated below it. Liked items are only related through users that liked both
+ * items and disliked items through users that disliked both, so the two groups never mix.
+ * The model has to keep bi-polar statistics, see {@link SlopeOneModel#enableBiPolar()}.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class BiPolarSlopeOne implements SlopeOneScheme {
+
+    /**
+     * Smallest number of co-rating users a pair needs to be used {@code default = 1}
+     */
+    private final int minSupport;
+
+    /**
+     * Constructs the scheme without a support threshold
+     */
+    public BiPolarSlopeOne() {
+        this(1);
+    }
+
+    @Override
+    public void score(SlopeOneModel model, int[] ids, double[] ratings, int n, ScoreSink sink) {
+        PairMatrix likes = model.getLikes();
+        PairMatrix dislikes = model.getDislikes();
+        if (likes == null || dislikes == null) {
+            throw new IllegalStateException("Model keeps no bi-polar statistics, call enableBiPolar() first");
+        }
+        double mean = SlopeOneModel.mean(ratings, n);
+        int threshold = Math.max(1, minSupport);
+        for (int a = 0; a < n; a++) {
+            if (ratings[a] == mean) {
+                continue;
+            }
+            PairMatrix pairs = ratings[a] > mean ? likes : dislikes;
+            int j = ids[a];
+            double rating = ratings[a];
+            for (int d = pairs.degree(j) - 1; d >= 0; d--) {
+                int count = pairs.neighborCount(j, d);
+                if (count >= threshold) {
+                    sink.add(pairs.neighbor(j, d), pairs.neighborSum(j, d) + rating * count, count);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.main;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.ml.examples.Clusterer;
+import weka.clusterers.SimpleKMeans;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Slope One partitioned by user cluster. Users are clustered with {@link Clusterer} on a taste
+ * profile, their mean-centered ratings of the most rated items, and every cluster gets its own
+ * differences matrix trained from its members only. Predictions are routed to the model of the
+ * user's cluster, so they only visit items rated within that cluster.
+ * <p>
+ * Items never rated inside a cluster are not predicted for its members.
+ */
+@Getter
+public class ClusteredSlopeOne {
+
+    /**
+     * Items whose ratings form the taste profile, one attribute each
+     */
+    private final List<Item> profileItems;
+
+    /**
+     * Read-only model of every cluster
+     */
+    private final List<SlopeOneModel> models;
+
+    /**
+     * Fitted clustering of the taste profiles
+     */
+    private final SimpleKMeans kMeans;
+
+    @Getter(AccessLevel.NONE)
+    private final Instances header;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<User, Integer> clusters;
+
+    private ClusteredSlopeOne(List<Item> profileItems, List<SlopeOneModel> models, SimpleKMeans kMeans,
+                              Instances header, Map<User, Integer> clusters) {
+        this.profileItems = profileItems;
+        this.models = models;
+        this.kMeans = kMeans;
+        this.header = header;
+        this.clusters = clusters;
+    }
+
+    /**
+     * Cluster the users and train one model per cluster
+     * @param data existing user data and their items' ratings
+     * @param clusterer clusterer providing the number of clusters and the seed
+     * @param profileSize number of most rated items used as clustering attributes
+     * @param parallelism number of clusters trained at the same time
+     * @return trained models
+     * @throws Exception If the users can not be clustered
+     */
+    public static ClusteredSlopeOne train(Map<User, ? extends Map<Item, Double>> data, Clusterer clusterer,
+                                          int profileSize, int parallelism) throws Exception {
+        List<Item> profileItems = mostRated(data, profileSize);
+        ArrayList<Attribute> attributes = new ArrayList<>(profileItems.size());
+        for (Item item : profileItems) {
+            attributes.add(new Attribute(item.getItemName()));
+        }
+        Instances profiles = new Instances("profiles", attributes, data.size());
+        List<User> users = new ArrayList<>(data.keySet());
+        for (User user : users) {
+            profiles.add(profile(data.get(user), profileItems, profiles));
+        }
+        SimpleKMeans kMeans = clusterer.buildClusterer(profiles);
+        int[] assignments = kMeans.getAssignments();
+
+        List<Map<User, Map<Item, Double>>> partitions = new ArrayList<>();
+        for (int c = 0; c < kMeans.getNumClusters(); c++) {
+            partitions.add(new HashMap<>());
+        }
+        Map<User, Integer> clusters = new HashMap<>();
+        for (int u = 0; u < users.size(); u++) {
+            partitions.get(assignments[u]).put(users.get(u), data.get(users.get(u)));
+            clusters.put(users.get(u), assignments[u]);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            List<SlopeOneModel> models = pool.submit(() -> IntStream.range(0, partitions.size()).parallel()
+                    .mapToObj(c -> SlopeOneModel.train(partitions.get(c)).snapshot())
+                    .toList()).join();
+            return new ClusteredSlopeOne(profileItems, models, kMeans, new Instances(profiles, 0), clusters);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param user known user
+     * @return cluster of the user or {@code -1} if the user was not part of training
+     */
+    public int clusterOf(User user) {
+        return clusters.getOrDefault(user, -1);
+    }
+
+    /**
+     * Cluster a rating history that was not part of training
+     * @param ratings ratings of one user
+     * @return closest cluster
+     * @throws Exception If the profile can not be clustered
+     */
+    public int clusterOf(Map<Item, Double> ratings) throws Exception {
+        return kMeans.clusterInstance(profile(ratings, profileItems, header));
+    }
+
+    /**
+     * Predict ratings of all items the user has not rated with the model of the user's cluster
+     * @param user known user
+     * @return predicted ratings, empty if the user is unknown
+     */
+    public Map<Item, Double> predict(User user) {
+        int cluster = clusterOf(user);
+        return cluster < 0 ? new HashMap<>() : models.get(cluster).predict(user);
+    }
+
+    /**
+     * Predict ratings of all items for a rating history that was not part of training
+     * @param ratings existing ratings of one user
+     * @return predicted ratings of unrated items
+     * @throws Exception If the profile can not be clustered
+     */
+    public Map<Item, Double> predict(Map<Item, Double> ratings) throws Exception {
+        return models.get(clusterOf(ratings)).predict(ratings);
+    }
+
+    /**
+     * Recommend the best scored unrated items with the model of the user's cluster
+     * @param user known user
+     * @param n number of recommendations
+     * @return up to {@code n} recommendations, best first
+     */
+    public List<Recommendation> recommend(User user, int n) {
+        int cluster = clusterOf(user);
+        return cluster < 0 ? new ArrayList<>() : models.get(cluster).recommend(user, n);
+    }
+
+    /**
+     * @return number of item pairs stored over all cluster models
+     */
+    public long storedPairs() {
+        long pairs = 0;
+        for (SlopeOneModel model : models) {
+            int items = model.getDictionary().size();
+            if (model.getPairs() instanceof SparsePairMatrix sparse) {
+                pairs += sparse.pairs();
+            } else {
+                pairs += TriangularPairMatrix.slots(items);
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Pick the items rated by the most users, ties broken by name so the profile is reproducible
+     */
+    private static List<Item> mostRated(Map<User, ? extends Map<Item, Double>> data, int profileSize) {
+        Map<Item, Integer> counts = new HashMap<>();
+        for (Map<Item, Double> ratings : data.values()) {
+            for (Item item : ratings.keySet()) {
+                counts.merge(item, 1, Integer::sum);
+            }
+        }
+        Item[] items = counts.keySet().toArray(new Item[0]);
+        Arrays.sort(items, Comparator.comparing((Item item) -> -counts.get(item)).thenComparing(Item::getItemName));
+        return List.of(Arrays.copyOf(items, Math.min(profileSize, items.length)));
+    }
+
+    /**
+     * Mean-centered ratings of the profile items, {@code 0} for unrated ones
+     */
+    private static Instance profile(Map<Item, Double> ratings, List<Item> profileItems, Instances dataset) {
+        double mean = 0.0;
+        for (double rating : ratings.values()) {
+            mean += rating;
+        }
+        mean = ratings.isEmpty() ? 0.0 : mean / ratings.size();
+        double[] values = new double[profileItems.size()];
+        for (int i = 0; i < values.length; i++) {
+            Double rating = ratings.get(profileItems.get(i));
+            values[i] = rating == null ? 0.0 : rating - mean;
+        }
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(dataset);
+        return instance;
+    }
+}
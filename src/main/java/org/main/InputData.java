@@ -28,4 +28,14 @@ public class InputData {
         }
         return data;
     }
+
+    /**
+     * Materialise the ratings of a synthetic generator, meant for data sets that fit in memory.
+     * Large data sets should be consumed through {@link RatingGenerator#stream()} instead.
+     * @param generator configured rating generator
+     * @return ratings of every generated user
+     */
+    public static Map<User, HashMap<Item, Double>> initializeData(RatingGenerator generator) {
+        return generator.toMap();
+    }
 }
@@ -3,10 +3,10 @@ package org.main;
 import lombok.*;
 
 @Getter
-@Setter
 @AllArgsConstructor
-@NoArgsConstructor
 @ToString
-public class Item {
-    private String itemName;
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
+public final class Item {
+    @NonNull
+    private final String itemName;
 }
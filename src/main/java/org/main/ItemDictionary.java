@@ -0,0 +1,90 @@
+package org.main;
+
+import java.util.Arrays;
+
+/**
+ * Maps every {@link Item} to a dense int id so that item pairs can be stored in primitive arrays.
+ * Ids come from a {@link NameRegistry}, so equal item names always share one id.
+ * <p>
+ * Items are only ever appended, a {@link #snapshot()} shares its storage with the dictionary it was
+ * taken from and only hides items added after it.
+ */
+public class ItemDictionary {
+    private final NameRegistry names;
+    private Item[] items;
+    private int size;
+
+    /**
+     * Constructs an empty dictionary
+     */
+    public ItemDictionary() {
+        this.names = new NameRegistry();
+        this.items = new Item[16];
+    }
+
+    private ItemDictionary(ItemDictionary other) {
+        this.names = other.names.snapshot();
+        this.items = other.items;
+        this.size = other.size;
+    }
+
+    /**
+     * Get the id of an item, assigning the next free id if the item is not known yet
+     * @param item item to look up
+     * @return dense id of the item
+     */
+    public int intern(Item item) {
+        int id = names.intern(item.getItemName());
+        if (id == size) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size << 1);
+            }
+            items[size++] = item;
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of an item without assigning a new one
+     * @param item item to look up
+     * @return dense id of the item or {@code -1} if the item is unknown
+     */
+    public int idOf(Item item) {
+        return names.idOf(item.getItemName());
+    }
+
+    /**
+     * Get the id of an item name without assigning a new one
+     * @param itemName name of the item
+     * @return dense id of the item or {@code -1} if the item is unknown
+     */
+    public int idOf(String itemName) {
+        return names.idOf(itemName);
+    }
+
+    /**
+     * Get the item that owns an id
+     * @param id dense id
+     * @return item with the given id
+     */
+    public Item item(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown id " + id);
+        }
+        return items[id];
+    }
+
+    /**
+     * @return number of known items, ids are {@code 0..size()-1}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return read-only view of the items known so far, taken in {@code O(1)}
+     */
+    public ItemDictionary snapshot() {
+        return new ItemDictionary(this);
+    }
+}
@@ -0,0 +1,74 @@
+package org.main;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Read-only dense {@link PairMatrix} over a memory-mapped model file, laid out like
+ * {@link TriangularPairMatrix}. Nothing is copied onto the heap, so mapping a saved model is
+ * almost instant.
+ */
+public class MappedPairMatrix implements PairMatrix {
+    private final int items;
+    private final DoubleBuffer sums;
+    private final IntBuffer counts;
+
+    /**
+     * @param items number of items
+     * @param sums mapped triangle of difference sums
+     * @param counts mapped triangle of pair counts
+     */
+    MappedPairMatrix(int items, DoubleBuffer sums, IntBuffer counts) {
+        this.items = items;
+        this.sums = sums;
+        this.counts = counts;
+    }
+
+    @Override
+    public void add(int i, int j, double difference, int count) {
+        throw new IllegalStateException("Memory-mapped pair matrix is read-only");
+    }
+
+    @Override
+    public double sum(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        return i > j ? sums.get(TriangularPairMatrix.index(i, j)) : -sums.get(TriangularPairMatrix.index(j, i));
+    }
+
+    @Override
+    public int count(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        return i > j ? counts.get(TriangularPairMatrix.index(i, j)) : counts.get(TriangularPairMatrix.index(j, i));
+    }
+
+    @Override
+    public int degree(int item) {
+        return items - 1;
+    }
+
+    @Override
+    public int neighbor(int item, int index) {
+        return index < item ? index : index + 1;
+    }
+
+    @Override
+    public void ensureCapacity(int items) {
+        if (items > this.items) {
+            throw new IllegalStateException("Memory-mapped pair matrix is read-only");
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return items;
+    }
+
+    @Override
+    public PairMatrix copy() {
+        return this;
+    }
+}
@@ -0,0 +1,99 @@
+package org.main;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe interning registry that assigns every distinct name a stable, dense int id in order
+ * of first appearance. Lookups of known names are lock-free, only new names take a lock.
+ * <p>
+ * Names are never removed or renumbered, so a {@link #snapshot()} shares the lookup table and name
+ * array with the registry it was taken from and only hides ids assigned after it.
+ */
+public class NameRegistry {
+    private final ConcurrentHashMap<String, Integer> ids;
+    private volatile String[] names;
+    private volatile int size;
+    private final boolean readOnly;
+
+    /**
+     * Constructs an empty registry
+     */
+    public NameRegistry() {
+        this.ids = new ConcurrentHashMap<>();
+        this.names = new String[16];
+        this.readOnly = false;
+    }
+
+    private NameRegistry(NameRegistry other) {
+        synchronized (other) {
+            this.ids = other.ids;
+            this.names = other.names;
+            this.size = other.size;
+            this.readOnly = true;
+        }
+    }
+
+    /**
+     * Get the id of a name, assigning the next free id if the name is not known yet
+     * @param name name to intern
+     * @return stable id of the name
+     */
+    public int intern(String name) {
+        int known = idOf(name);
+        if (known >= 0) {
+            return known;
+        }
+        if (readOnly) {
+            throw new IllegalStateException("Registry snapshot is read-only, unknown name " + name);
+        }
+        synchronized (this) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = size;
+                if (id == names.length) {
+                    names = Arrays.copyOf(names, id << 1);
+                }
+                names[id] = name;
+                size = id + 1;
+                ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Get the id of a name without assigning a new one
+     * @param name name to look up
+     * @return id of the name or {@code -1} if the name is unknown
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null || id >= size ? -1 : id;
+    }
+
+    /**
+     * @param id id returned by {@link #intern(String)}
+     * @return name that owns the id
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown id " + id);
+        }
+        return names[id];
+    }
+
+    /**
+     * @return number of registered names, ids are {@code 0..size()-1}
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return read-only view of the names registered so far, taken in {@code O(1)}
+     */
+    public NameRegistry snapshot() {
+        return new NameRegistry(this);
+    }
+}
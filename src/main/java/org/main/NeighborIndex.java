@@ -0,0 +1,180 @@
+package org.main;
+
+import java.util.Arrays;
+
+/**
+ * Read-only {@link PairMatrix} that keeps, for every item, only the {@code k} neighbors co-rated by
+ * the most users. Rows are stored in compressed sparse row form: one offset per item into flat
+ * neighbor id, count and sum arrays, neighbors sorted by id. Prediction walks at most {@code k}
+ * contiguous entries per rated item whatever the catalog size, and memory is bounded by
+ * {@code items * k} entries.
+ * <p>
+ * Rows are not symmetric, {@code j} may be among the best neighbors of {@code i} but not the other
+ * way round. Schemes only walk the rows of rated items, so a candidate is scored from a rated item
+ * only if it is one of that item's best neighbors. {@link #count(int, int)} and
+ * {@link #sum(int, int)} find a pair if it is kept in either row.
+ */
+public class NeighborIndex implements PairMatrix {
+    private final int items;
+    private final int k;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] counts;
+    private final double[] sums;
+
+    private NeighborIndex(int items, int k, int[] offsets, int[] neighbors, int[] counts, double[] sums) {
+        this.items = items;
+        this.k = k;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.counts = counts;
+        this.sums = sums;
+    }
+
+    /**
+     * Select the best supported neighbors of every item, ties are broken by the smaller item id
+     * @param source full pair statistics
+     * @param k neighbors kept per item
+     * @return new index
+     * @throws IllegalArgumentException If {@code k} is not positive
+     */
+    public static NeighborIndex build(PairMatrix source, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of neighbors must be positive: " + k);
+        }
+        int items = source.capacity();
+        int[][] rows = new int[items][];
+        long[] candidates = new long[16];
+        long entries = 0;
+        for (int i = 0; i < items; i++) {
+            int degree = source.degree(i);
+            if (candidates.length < degree) {
+                candidates = new long[degree];
+            }
+            int found = 0;
+            for (int d = 0; d < degree; d++) {
+                int j = source.neighbor(i, d);
+                int count = source.count(j, i);
+                if (count > 0) {
+                    // highest count first, then smallest id
+                    candidates[found++] = ((long) (Integer.MAX_VALUE - count) << 32) | j;
+                }
+            }
+            Arrays.sort(candidates, 0, found);
+            int[] row = new int[Math.min(k, found)];
+            for (int r = 0; r < row.length; r++) {
+                row[r] = (int) candidates[r];
+            }
+            Arrays.sort(row);
+            rows[i] = row;
+            entries += row.length;
+        }
+        if (entries > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many neighbor entries for one index: " + entries);
+        }
+
+        int[] offsets = new int[items + 1];
+        int[] neighbors = new int[(int) entries];
+        int[] counts = new int[neighbors.length];
+        double[] sums = new double[neighbors.length];
+        int next = 0;
+        for (int i = 0; i < items; i++) {
+            offsets[i] = next;
+            for (int j : rows[i]) {
+                neighbors[next] = j;
+                counts[next] = source.count(j, i);
+                sums[next] = source.sum(j, i);
+                next++;
+            }
+            rows[i] = null;
+        }
+        offsets[items] = next;
+        return new NeighborIndex(items, k, offsets, neighbors, counts, sums);
+    }
+
+    /**
+     * @return maximum number of neighbors kept per item
+     */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * @return number of stored row entries, a pair kept by both of its items counts twice
+     */
+    public int entries() {
+        return offsets[items];
+    }
+
+    @Override
+    public void add(int i, int j, double difference, int count) {
+        throw new IllegalStateException("Neighbor index is read-only");
+    }
+
+    @Override
+    public double sum(int i, int j) {
+        int slot = find(j, i);
+        if (slot >= 0) {
+            return sums[slot];
+        }
+        slot = find(i, j);
+        return slot < 0 ? 0.0 : -sums[slot];
+    }
+
+    @Override
+    public int count(int i, int j) {
+        int slot = find(j, i);
+        if (slot < 0) {
+            slot = find(i, j);
+        }
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    @Override
+    public int degree(int item) {
+        return offsets[item + 1] - offsets[item];
+    }
+
+    @Override
+    public int neighbor(int item, int index) {
+        return neighbors[offsets[item] + index];
+    }
+
+    @Override
+    public int neighborCount(int item, int index) {
+        return counts[offsets[item] + index];
+    }
+
+    @Override
+    public double neighborSum(int item, int index) {
+        return sums[offsets[item] + index];
+    }
+
+    @Override
+    public void ensureCapacity(int items) {
+        if (items > this.items) {
+            throw new IllegalStateException("Neighbor index is read-only");
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return items;
+    }
+
+    @Override
+    public PairMatrix copy() {
+        return this;
+    }
+
+    /**
+     * @return slot of {@code neighbor} in the row of {@code item}, negative if it is not kept
+     */
+    private int find(int item, int neighbor) {
+        if (item == neighbor) {
+            return -1;
+        }
+        int slot = Arrays.binarySearch(neighbors, offsets[item], offsets[item + 1], neighbor);
+        return slot < 0 ? -1 : slot;
+    }
+}
@@ -0,0 +1,48 @@
+package org.main;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Page geometry and ownership epochs of the copy-on-write structures behind {@link SlopeOneModel#snapshot()}.
+ * <p>
+ * Large arrays are split into pages of {@code 1 << shift} entries. A copy only duplicates the page
+ * references, then both sides take a fresh epoch, so every page is owned by neither of them. A writer
+ * clones a page the first time it changes it after a copy and stamps the clone with its own epoch,
+ * so a snapshot costs {@code O(pages)} and each update afterwards at most one page per array.
+ * <p>
+ * Small pages make the pages cloned after a publish cheaper, large pages keep the page table small
+ * enough to stay in cache on lookups, every layout picks its own size.
+ */
+final class Pages {
+
+    private static final AtomicInteger EPOCHS = new AtomicInteger();
+
+    private Pages() {
+    }
+
+    /**
+     * @return epoch no page is stamped with yet
+     */
+    static int nextEpoch() {
+        return EPOCHS.incrementAndGet();
+    }
+
+    /**
+     * @param length number of entries
+     * @param shift log2 of the page size
+     * @return number of pages needed to hold them
+     */
+    static int count(long length, int shift) {
+        return (int) ((length + (1 << shift) - 1) >>> shift);
+    }
+
+    /**
+     * @param length number of entries
+     * @param page page number
+     * @param shift log2 of the page size
+     * @return number of entries held by the page, only the last page may be shorter
+     */
+    static int length(long length, int page, int shift) {
+        return (int) Math.min(1 << shift, length - ((long) page << shift));
+    }
+}
@@ -0,0 +1,104 @@
+package org.main;
+
+/**
+ * Raw Slope One statistics for every pair of items: the sum of rating differences and the number
+ * of users that rated both items. Items are addressed by the dense ids of an {@link ItemDictionary}.
+ * <p>
+ * Only one half of the matrix is stored, because {@code sum(i, j) == -sum(j, i)} and
+ * {@code count(i, j) == count(j, i)}.
+ */
+public interface PairMatrix {
+
+    /**
+     * Catalog size up to which the dense triangular layout is used, above it pairs are stored sparsely
+     */
+    int DENSE_LIMIT = 2048;
+
+    /**
+     * Add observations to a pair
+     * @param i first item id
+     * @param j second item id, must differ from {@code i}
+     * @param difference sum of observed differences {@code r(i) - r(j)} to add
+     * @param count number of observations to add, negative to remove observations
+     */
+    void add(int i, int j, double difference, int count);
+
+    /**
+     * @param i first item id
+     * @param j second item id
+     * @return sum of {@code r(i) - r(j)} over all users that rated both items
+     */
+    double sum(int i, int j);
+
+    /**
+     * @param i first item id
+     * @param j second item id
+     * @return number of users that rated both items
+     */
+    int count(int i, int j);
+
+    /**
+     * Number of neighbors of an item. Neighbors are the items that may share a pair with it, a dense
+     * matrix reports every other item, a sparse matrix only the items it has seen co-rated. Callers
+     * still check {@link #count(int, int)} for every neighbor.
+     * @param item item id
+     * @return number of neighbors, addressed through {@link #neighbor(int, int)}
+     */
+    int degree(int item);
+
+    /**
+     * @param item item id
+     * @param index neighbor position, {@code 0..degree(item)-1}
+     * @return id of the neighbor
+     */
+    int neighbor(int item, int index);
+
+    /**
+     * Same as {@code count(neighbor(item, index), item)}, layouts that store rows override it to
+     * skip the pair lookup
+     * @param item item id
+     * @param index neighbor position, {@code 0..degree(item)-1}
+     * @return number of users that rated both items
+     */
+    default int neighborCount(int item, int index) {
+        return count(neighbor(item, index), item);
+    }
+
+    /**
+     * Same as {@code sum(neighbor(item, index), item)}, see {@link #neighborCount(int, int)}
+     * @param item item id
+     * @param index neighbor position, {@code 0..degree(item)-1}
+     * @return sum of {@code r(neighbor) - r(item)} over all users that rated both items
+     */
+    default double neighborSum(int item, int index) {
+        return sum(neighbor(item, index), item);
+    }
+
+    /**
+     * Make room for item ids {@code 0..items-1}
+     * @param items number of items the matrix has to address
+     */
+    void ensureCapacity(int items);
+
+    /**
+     * @return number of items the matrix can address
+     */
+    int capacity();
+
+    /**
+     * @return independent copy of this matrix
+     */
+    PairMatrix copy();
+
+    /**
+     * Choose the layout for a catalog of given size
+     * @param items number of items
+     * @return empty matrix able to address all items
+     */
+    static PairMatrix forCatalog(int items) {
+        if (items <= DENSE_LIMIT) {
+            return new TriangularPairMatrix(items);
+        }
+        return new SparsePairMatrix(items);
+    }
+}
@@ -0,0 +1,187 @@
+package org.main;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded per-user cache of {@link SlopeOneModel#predict(User)} results. Entries expire after a fixed
+ * time to live and are evicted in least recently used order once a segment is full.
+ * <p>
+ * Entries outlive the snapshot they were computed from: {@link SlopeOne#publish()} only drops the
+ * users whose own ratings changed, so a batch of new ratings does not empty the cache. The
+ * predictions of other users may lag behind the newest ratings by at most the time to live.
+ * Entries keep no reference to their snapshot, so a cached user never keeps a replaced model
+ * reachable. Cached predictions are unmodifiable.
+ * <p>
+ * Users are spread over independently locked segments, each with its own share of
+ * {@code maximumSize} and its own LRU order, so concurrent hits do not wait on a single lock.
+ */
+public class PredictionCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final long timeToLive;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty cache
+     * @param maximumSize maximum number of cached users
+     * @param timeToLive time after which an entry is recomputed, {@link Duration#ZERO} to keep entries
+     *                   until they are evicted or their user's ratings change
+     */
+    public PredictionCache(int maximumSize, Duration timeToLive) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.timeToLive = timeToLive.toNanos();
+        int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+        this.segments = new Segment[count];
+        for (int s = 0; s < count; s++) {
+            // the first segments take the remainder, so the capacities add up to maximumSize
+            segments[s] = new Segment(maximumSize / count + (s < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Get the predictions of a user, computing and caching them on a miss
+     * @param user user to predict for
+     * @param snapshot current snapshot served to readers, only read on a miss and after the entry was
+     *                 looked up, so an invalidation racing with the miss is noticed
+     * @return unmodifiable predicted ratings
+     */
+    public Map<Item, Double> get(User user, Supplier<SlopeOneModel> snapshot) {
+        long now = System.nanoTime();
+        Segment segment = segment(user);
+        long invalidations;
+        synchronized (segment) {
+            Entry entry = segment.entries.get(user);
+            if (entry != null) {
+                if (timeToLive == 0 || now - entry.created < timeToLive) {
+                    hits.increment();
+                    return entry.predictions;
+                }
+                segment.entries.remove(user);
+            }
+            invalidations = segment.invalidations;
+        }
+        misses.increment();
+        Map<Item, Double> predictions = Collections.unmodifiableMap(snapshot.get().predict(user));
+        synchronized (segment) {
+            // an invalidation while computing may have been meant for these predictions, do not keep them
+            if (segment.invalidations == invalidations) {
+                segment.entries.put(user, new Entry(now, predictions));
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Drop the entry of one user
+     * @param user user whose predictions are stale
+     */
+    public void invalidate(User user) {
+        Segment segment = segment(user);
+        synchronized (segment) {
+            segment.entries.remove(user);
+            segment.invalidations++;
+        }
+    }
+
+    /**
+     * Drop all entries
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.invalidations++;
+            }
+        }
+    }
+
+    /**
+     * @return number of cached users, including entries that are expired but not yet dropped
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests that had to compute predictions
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries dropped because the cache was full
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return share of requests answered from the cache, {@code 0} before the first request
+     */
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    private Segment segment(User user) {
+        int hash = user.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Access ordered share of the entries, guarded by its own monitor
+     */
+    private class Segment {
+        private final LinkedHashMap<User, Entry> entries;
+        private long invalidations;
+
+        private Segment(int maximumSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<User, Entry> eldest) {
+                    if (size() > maximumSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static class Entry {
+        private final long created;
+        private final Map<Item, Double> predictions;
+
+        private Entry(long created, Map<Item, Double> predictions) {
+            this.created = created;
+            this.predictions = predictions;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.main;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reusable primitive buffers for one prediction at a time. Only the entries touched by the previous
+ * user are cleared on {@link #reset()}, so reusing the buffers costs {@code O(touched items)} and
+ * allocates nothing once they are large enough for the catalog.
+ * <p>
+ * Buffers are borrowed from a bounded pool with {@link #acquire()} and handed back with
+ * {@link #release(PredictionScratch)} rather than kept per thread, so callers on short-lived virtual
+ * threads, one per server request, reuse them as well.
+ */
+public class PredictionScratch implements ScoreSink {
+    private static final ArrayBlockingQueue<PredictionScratch> POOL =
+            new ArrayBlockingQueue<>(4 * Runtime.getRuntime().availableProcessors());
+    private static final int EXCLUDED = -1;
+
+    private double[] sums;
+    private int[] counts;
+    private int[] touched;
+    private int touchedSize;
+    private int[] ids;
+    private double[] ratings;
+
+    /**
+     * Constructs empty buffers that grow on first use
+     */
+    public PredictionScratch() {
+        this.sums = new double[0];
+        this.counts = new int[0];
+        this.touched = new int[0];
+        this.ids = new int[16];
+        this.ratings = new double[16];
+    }
+
+    /**
+     * @return pooled buffers, or new ones if all pooled buffers are in use
+     */
+    public static PredictionScratch acquire() {
+        PredictionScratch scratch = POOL.poll();
+        return scratch != null ? scratch : new PredictionScratch();
+    }
+
+    /**
+     * Hand buffers back to the pool, they are dropped if the pool is full
+     * @param scratch buffers from {@link #acquire()} that the caller no longer uses
+     */
+    public static void release(PredictionScratch scratch) {
+        POOL.offer(scratch);
+    }
+
+    /**
+     * Clear the previous user's entries and make room for a catalog
+     * @param items number of items that may be predicted
+     */
+    public void reset(int items) {
+        for (int i = 0; i < touchedSize; i++) {
+            sums[touched[i]] = 0.0;
+            counts[touched[i]] = 0;
+        }
+        touchedSize = 0;
+        if (items > sums.length) {
+            sums = new double[items];
+            counts = new int[items];
+            touched = new int[items];
+        }
+    }
+
+    /**
+     * Keep an item out of the predictions, used for items the user already rated
+     * @param id item id
+     */
+    void exclude(int id) {
+        if (counts[id] == 0) {
+            touched[touchedSize++] = id;
+        }
+        counts[id] = EXCLUDED;
+    }
+
+    /**
+     * @param id item id
+     * @param sum weighted prediction sum to add
+     * @param count pair support to add
+     */
+    @Override
+    public void add(int id, double sum, int count) {
+        int current = counts[id];
+        if (current == EXCLUDED) {
+            return;
+        }
+        if (current == 0) {
+            touched[touchedSize++] = id;
+        }
+        sums[id] += sum;
+        counts[id] = current + count;
+    }
+
+    /**
+     * @return number of items touched by the last prediction, addressed through {@link #touched(int)}
+     */
+    public int touchedSize() {
+        return touchedSize;
+    }
+
+    /**
+     * @param index position, {@code 0..touchedSize()-1}
+     * @return id of a touched item
+     */
+    public int touched(int index) {
+        return touched[index];
+    }
+
+    /**
+     * @param id item id
+     * @return {@code true} if the item has a prediction
+     */
+    public boolean isPredicted(int id) {
+        return counts[id] > 0;
+    }
+
+    /**
+     * @param id item id
+     * @return predicted rating, only meaningful if {@link #isPredicted(int)}
+     */
+    public double prediction(int id) {
+        return sums[id] / counts[id];
+    }
+
+    /**
+     * @param n required length
+     * @return reusable buffer for the ids of a user's history
+     */
+    int[] ids(int n) {
+        if (ids.length < n) {
+            ids = new int[Math.max(n, ids.length << 1)];
+            ratings = new double[ids.length];
+        }
+        return ids;
+    }
+
+    /**
+     * @param n required length
+     * @return reusable buffer for the ratings of a user's history, matching {@link #ids(int)}
+     */
+    double[] ratings(int n) {
+        ids(n);
+        return ratings;
+    }
+}
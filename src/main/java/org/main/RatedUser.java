@@ -0,0 +1,11 @@
+package org.main;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class RatedUser {
+    private final User user;
+    private final UserRatings ratings;
+}
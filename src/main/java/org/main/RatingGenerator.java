@@ -0,0 +1,231 @@
+package org.main;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Seeded synthetic rating generator. Item popularity follows a Zipf distribution over the catalog,
+ * item {@code 0} being the most popular one. Every user is generated from its own random stream
+ * derived from the seed and the user number, so users are produced lazily, in any order and in
+ * parallel, and the same configuration always produces the same ratings.
+ */
+@Setter
+@Getter
+public class RatingGenerator {
+
+    /**
+     * Random numbers seed to keep the results consistent {@code default = 42}
+     */
+    long seed;
+
+    /**
+     * Number of generated users {@code default = 1000}
+     */
+    int numberOfUsers;
+
+    /**
+     * Number of items in the catalog {@code default = 100}
+     */
+    int catalogSize;
+
+    /**
+     * Distinct items rated by every user, capped by the catalog size. Users get exactly this many
+     * ratings however steep the popularity is {@code default = 10}
+     */
+    int ratingsPerUser;
+
+    /**
+     * Zipf exponent of item popularity, {@code 0} gives uniform popularity {@code default = 1.0}
+     */
+    double zipfExponent;
+
+    /**
+     * Lowest rating value {@code default = 1.0}
+     */
+    double minRating;
+
+    /**
+     * Highest rating value {@code default = 5.0}
+     */
+    double maxRating;
+
+    /**
+     * Ratings are rounded to multiples of this step above {@code minRating} and never exceed
+     * {@code maxRating}, {@code 0} keeps them continuous {@code default = 1.0}
+     */
+    double ratingStep;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double[] cumulative;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double cumulativeExponent;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ItemDictionary dictionary;
+
+    /**
+     * Constructs a new RatingGenerator with default values
+     */
+    public RatingGenerator() {
+        this(42, 1000, 100, 10, 1.0, 1.0, 5.0, 1.0);
+    }
+
+    /**
+     * Constructs a new RatingGenerator
+     * @param seed random numbers seed
+     * @param numberOfUsers number of generated users
+     * @param catalogSize number of items in the catalog
+     * @param ratingsPerUser distinct items rated by every user
+     * @param zipfExponent Zipf exponent of item popularity
+     * @param minRating lowest rating value
+     * @param maxRating highest rating value
+     * @param ratingStep rating rounding step, {@code 0} for continuous ratings
+     */
+    public RatingGenerator(long seed, int numberOfUsers, int catalogSize, int ratingsPerUser,
+                           double zipfExponent, double minRating, double maxRating, double ratingStep) {
+        this.seed = seed;
+        this.numberOfUsers = numberOfUsers;
+        this.catalogSize = catalogSize;
+        this.ratingsPerUser = ratingsPerUser;
+        this.zipfExponent = zipfExponent;
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.ratingStep = ratingStep;
+    }
+
+    /**
+     * Dictionary of the generated catalog, item {@code i} is named {@code "Item i"} and has id {@code i}
+     * @return item dictionary matching the generated item ids
+     */
+    public synchronized ItemDictionary dictionary() {
+        if (dictionary == null || dictionary.size() != catalogSize) {
+            ItemDictionary items = new ItemDictionary();
+            for (int i = 0; i < catalogSize; i++) {
+                items.intern(new Item("Item " + i));
+            }
+            dictionary = items;
+        }
+        return dictionary;
+    }
+
+    /**
+     * Lazily generate all users. The stream can be made parallel, every user is still generated
+     * from its own random stream
+     * @return stream of generated users
+     */
+    public Stream<RatedUser> stream() {
+        double[] popularity = popularity();
+        return IntStream.range(0, numberOfUsers).mapToObj(u -> generate(u, popularity));
+    }
+
+    /**
+     * Generate one user
+     * @param userNumber number of the user, {@code 0..numberOfUsers-1}
+     * @return ratings of the user
+     */
+    public RatedUser generate(int userNumber) {
+        return generate(userNumber, popularity());
+    }
+
+    /**
+     * Materialise all ratings in the map layout used by {@link SlopeOne}, meant for small data sets
+     * @return ratings of every user
+     */
+    public Map<User, HashMap<Item, Double>> toMap() {
+        ItemDictionary items = dictionary();
+        Map<User, HashMap<Item, Double>> data = new HashMap<>();
+        stream().forEachOrdered(rated -> {
+            HashMap<Item, Double> ratings = new HashMap<>();
+            UserRatings generated = rated.getRatings();
+            for (int i = 0; i < generated.size(); i++) {
+                ratings.put(items.item(generated.id(i)), generated.rating(i));
+            }
+            data.put(rated.getUser(), ratings);
+        });
+        return data;
+    }
+
+    private RatedUser generate(int userNumber, double[] popularity) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + userNumber);
+        int wanted = Math.min(ratingsPerUser, catalogSize);
+        UserRatings ratings = new UserRatings(wanted);
+        int attempts = wanted * 20;
+        while (ratings.size() < wanted && attempts-- > 0) {
+            int item = sampleItem(random, popularity);
+            if (ratings.indexOf(item) < 0) {
+                ratings.add(item, sampleRating(random));
+            }
+        }
+        if (ratings.size() < wanted) {
+            // steep popularity keeps drawing the same items, walk on from a sampled item to the unrated ones
+            int item = sampleItem(random, popularity);
+            while (ratings.size() < wanted) {
+                if (ratings.indexOf(item) < 0) {
+                    ratings.add(item, sampleRating(random));
+                }
+                item = item + 1 == catalogSize ? 0 : item + 1;
+            }
+        }
+        return new RatedUser(new User("User " + userNumber), ratings);
+    }
+
+    private int sampleItem(SplittableRandom random, double[] popularity) {
+        if (popularity == null) {
+            return random.nextInt(catalogSize);
+        }
+        double target = random.nextDouble() * popularity[catalogSize - 1];
+        int low = 0;
+        int high = catalogSize - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (popularity[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private double sampleRating(SplittableRandom random) {
+        double rating = minRating + random.nextDouble() * (maxRating - minRating);
+        if (ratingStep > 0) {
+            // the highest step may lie above maxRating when the range is not a multiple of the step
+            long steps = Math.round((rating - minRating) / ratingStep);
+            long maxSteps = (long) Math.floor((maxRating - minRating) / ratingStep + 1e-9);
+            rating = minRating + Math.min(steps, maxSteps) * ratingStep;
+        }
+        return Math.min(rating, maxRating);
+    }
+
+    /**
+     * Cumulative Zipf weights of the catalog, {@code null} for uniform popularity
+     */
+    private synchronized double[] popularity() {
+        if (zipfExponent == 0) {
+            return null;
+        }
+        if (cumulative == null || cumulative.length != catalogSize || cumulativeExponent != zipfExponent) {
+            double[] weights = new double[catalogSize];
+            double total = 0;
+            for (int i = 0; i < catalogSize; i++) {
+                total += 1.0 / Math.pow(i + 1, zipfExponent);
+                weights[i] = total;
+            }
+            cumulative = weights;
+            cumulativeExponent = zipfExponent;
+        }
+        return cumulative;
+    }
+}
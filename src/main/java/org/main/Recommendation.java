@@ -0,0 +1,11 @@
+package org.main;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class Recommendation {
+    private final Item item;
+    private final double score;
+}
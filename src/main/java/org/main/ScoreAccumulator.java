@@ -0,0 +1,74 @@
+package org.main;
+
+import java.util.Arrays;
+
+/**
+ * Per-request Slope One accumulator that only holds the candidate items of one user, keyed by item id
+ * in an open addressing table. Its size depends on the user's history, not on the catalog.
+ */
+class ScoreAccumulator implements ScoreSink {
+    private static final int EMPTY = -1;
+    private static final int EXCLUDED = -1;
+
+    private final int[] keys;
+    private final double[] sums;
+    private final int[] counts;
+
+    /**
+     * @param expected upper bound of distinct item ids that will be added
+     */
+    ScoreAccumulator(int expected) {
+        int length = 16;
+        while (length < expected * 2) {
+            length <<= 1;
+        }
+        this.keys = new int[length];
+        Arrays.fill(keys, EMPTY);
+        this.sums = new double[length];
+        this.counts = new int[length];
+    }
+
+    /**
+     * Keep an item out of the results, used for items the user already rated
+     * @param id item id
+     */
+    void exclude(int id) {
+        counts[slot(id)] = EXCLUDED;
+    }
+
+    /**
+     * @param id item id
+     * @param sum weighted prediction sum to add
+     * @param count pair support to add
+     */
+    @Override
+    public void add(int id, double sum, int count) {
+        int slot = slot(id);
+        if (counts[slot] != EXCLUDED) {
+            sums[slot] += sum;
+            counts[slot] += count;
+        }
+    }
+
+    /**
+     * Offer the averaged score of every candidate to a heap
+     * @param top heap collecting the best candidates
+     */
+    void offerTo(TopN top) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && counts[i] > 0) {
+                top.offer(keys[i], sums[i] / counts[i]);
+            }
+        }
+    }
+
+    private int slot(int id) {
+        int mask = keys.length - 1;
+        int slot = (id * 0x9E3779B9) >>> 7 & mask;
+        while (keys[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        return slot;
+    }
+}
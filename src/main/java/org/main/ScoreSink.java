@@ -0,0 +1,14 @@
+package org.main;
+
+/**
+ * Receives the weighted contributions a {@link SlopeOneScheme} computes for candidate items
+ */
+public interface ScoreSink {
+
+    /**
+     * @param id candidate item id
+     * @param sum weighted prediction sum to add
+     * @param count weight to add, the prediction is the total sum divided by the total weight
+     */
+    void add(int id, double sum, int count);
+}
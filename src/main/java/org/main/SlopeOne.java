@@ -1,60 +1,257 @@
 package org.main;
 
+import org.metrics.Metrics;
+import org.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+/**
+ * Serves Slope One predictions from an immutable model snapshot. Request threads read the current
+ * snapshot without locking, while training and rating updates work on a private model and swap a
+ * new snapshot in atomically.
+ */
 public class SlopeOne {
-    private static final Map<Item, Map<Item, Double>> diff = new HashMap<>();
-    private static final Map<Item, Map<Item, Integer>> freq = new HashMap<>();
-    private static final Map<User, HashMap<Item, Double>> outputData = new HashMap<>();
+    private final AtomicReference<SlopeOneModel> snapshot;
+    private final int parallelism;
+    private SlopeOneModel model;
+    private volatile PredictionCache cache;
+    private final Set<User> changed = new HashSet<>();
+    private final Object training = new Object();
+    private boolean schemeChanged;
+    private List<Consumer<SlopeOneModel>> duringTraining;
+
+    /**
+     * Constructs an empty Slope One that trains on a single thread
+     */
+    public SlopeOne() {
+        this(1);
+    }
+
+    /**
+     * Constructs an empty Slope One
+     * @param parallelism number of threads used for training
+     */
+    public SlopeOne(int parallelism) {
+        this.parallelism = parallelism;
+        this.model = new SlopeOneModel();
+        this.snapshot = new AtomicReference<>(model.snapshot());
+    }
 
     public static void slopeOne(int numberOfUsers) {
         Map<User, HashMap<Item, Double>> inputData = InputData.initializeData(numberOfUsers);
         System.out.println("Slope One - Before the Prediction\n");
-        buildDifferencesMatrix(inputData);
+        printData(inputData);
+        SlopeOne slopeOne = new SlopeOne();
+        slopeOne.train(inputData);
         System.out.println("\nSlope One - With Predictions\n");
-        predict(inputData);
+        printData(slopeOne.predict(inputData));
+    }
+
+    /**
+     * Batch-scoring counterpart of {@link #slopeOne(int)}: predictions of every user are written to
+     * part files instead of the console
+     * @param numberOfUsers number of generated users
+     * @param directory output directory
+     * @throws IOException If the predictions can not be written
+     */
+    public static void batchScore(int numberOfUsers, Path directory) throws IOException {
+        SlopeOne slopeOne = new SlopeOne(Runtime.getRuntime().availableProcessors());
+        slopeOne.train(InputData.initializeData(numberOfUsers));
+        BatchReport report = new BatchScorer().score(slopeOne.getModel(), directory);
+        System.out.println("Slope One - Batch scoring\n\n" + report);
     }
 
     /**
      * Based on the available data, calculate the relationships between the
-     * items and number of occurences
+     * items and number of occurences, then publish the result as the new snapshot.
+     * <p>
+     * Rating updates are not blocked while the model is trained. Updates made meanwhile are recorded
+     * and replayed in order on the trained model before it replaces the current one, so they are not
+     * lost. Concurrent calls of this method run one after the other.
      *
      * @param data
      *            existing user data and their items' ratings
      */
-    private static void buildDifferencesMatrix(Map<User, HashMap<Item, Double>> data) {
-        for (HashMap<Item, Double> user : data.values()) {
-            for (Map.Entry<Item, Double> e : user.entrySet()) {
-                if (!diff.containsKey(e.getKey())) {
-                    diff.put(e.getKey(), new HashMap<>());
-                    freq.put(e.getKey(), new HashMap<>());
+    public void train(Map<User, ? extends Map<Item, Double>> data) {
+        synchronized (training) {
+            synchronized (this) {
+                duringTraining = new ArrayList<>();
+            }
+            try {
+                SlopeOneModel trained = SlopeOneModel.train(data, parallelism);
+                SlopeOneScheme scheme;
+                synchronized (this) {
+                    scheme = model.getScheme();
+                }
+                if (scheme instanceof BiPolarSlopeOne) {
+                    trained.enableBiPolar();
                 }
-                for (Map.Entry<Item, Double> e2 : user.entrySet()) {
-                    int oldCount = 0;
-                    if (freq.get(e.getKey()).containsKey(e2.getKey())) {
-                        oldCount = freq.get(e.getKey()).get(e2.getKey());
+                synchronized (this) {
+                    // the scheme may have changed while the bi-polar statistics were built
+                    if (model.getScheme() instanceof BiPolarSlopeOne) {
+                        trained.enableBiPolar();
                     }
-                    double oldDiff = 0.0;
-                    if (diff.get(e.getKey()).containsKey(e2.getKey())) {
-                        oldDiff = diff.get(e.getKey()).get(e2.getKey());
+                    trained.setScheme(model.getScheme());
+                    for (Consumer<SlopeOneModel> update : duringTraining) {
+                        update.accept(trained);
                     }
-                    double observedDiff = e.getValue() - e2.getValue();
-                    freq.get(e.getKey()).put(e2.getKey(), oldCount + 1);
-                    diff.get(e.getKey()).put(e2.getKey(), oldDiff + observedDiff);
+                    model = trained;
+                    snapshot.set(trained.snapshot());
+                    changed.clear();
+                    schemeChanged = false;
+                }
+                invalidateCache();
+            } finally {
+                synchronized (this) {
+                    duringTraining = null;
                 }
             }
         }
-        for (Item j : diff.keySet()) {
-            for (Item i : diff.get(j).keySet()) {
-                double oldValue = diff.get(j).get(i);
-                int count = freq.get(j).get(i);
-                diff.get(j).put(i, oldValue / count);
+    }
+
+    /**
+     * Add or update a rating. The change becomes visible to readers with the next {@link #publish()}
+     * @param user user giving the rating
+     * @param item rated item
+     * @param rating rating value
+     */
+    public synchronized void setRating(User user, Item item, double rating) {
+        model.setRating(user, item, rating);
+        changed.add(user);
+        if (duringTraining != null) {
+            duringTraining.add(trained -> trained.setRating(user, item, rating));
+        }
+    }
+
+    /**
+     * Rating of the model being changed, including changes that are not published yet
+     * @param user user that gave the rating
+     * @param item rated item
+     * @return rating or {@link Double#NaN} if the user has not rated the item
+     */
+    public synchronized double getRating(User user, Item item) {
+        return model.ratingOf(user, item);
+    }
+
+    /**
+     * Remove a rating. The change becomes visible to readers with the next {@link #publish()}
+     * @param user user that gave the rating
+     * @param item rated item
+     * @return {@code true} if the rating existed
+     */
+    public synchronized boolean removeRating(User user, Item item) {
+        changed.add(user);
+        if (duringTraining != null) {
+            duringTraining.add(trained -> trained.removeRating(user, item));
+        }
+        return model.removeRating(user, item);
+    }
+
+    /**
+     * Choose how predictions are computed, a {@link BiPolarSlopeOne} scheme also starts keeping the
+     * bi-polar statistics. The change becomes visible to readers with the next {@link #publish()}
+     * @param scheme prediction scheme
+     */
+    public synchronized void setScheme(SlopeOneScheme scheme) {
+        if (scheme instanceof BiPolarSlopeOne) {
+            model.enableBiPolar();
+        }
+        model.setScheme(scheme);
+        schemeChanged = true;
+    }
+
+    /**
+     * Replace the snapshot served to readers with a copy of the current model. Only the cached
+     * predictions of users whose own ratings changed are dropped, see {@link PredictionCache}.
+     */
+    public synchronized void publish() {
+        snapshot.set(model.snapshot());
+        PredictionCache current = cache;
+        if (current != null) {
+            if (schemeChanged) {
+                current.invalidateAll();
+            } else {
+                changed.forEach(current::invalidate);
             }
         }
-        printData(data);
+        changed.clear();
+        schemeChanged = false;
+    }
+
+    /**
+     * Drop all cached predictions, used when the whole model is replaced
+     */
+    private void invalidateCache() {
+        PredictionCache current = cache;
+        if (current != null) {
+            current.invalidateAll();
+        }
+    }
+
+    /**
+     * @return snapshot currently served to readers
+     */
+    public SlopeOneModel getModel() {
+        return snapshot.get();
+    }
+
+    /**
+     * Serve {@link #predict(User)} through a cache. {@link #train(Map)} and a scheme change empty it,
+     * {@link #publish()} only drops the users whose own ratings changed, the other entries may lag
+     * behind newer ratings by the cache's time to live. The hits, misses and evictions of the cache
+     * are published as the {@code slopeone.cache.*} gauges of {@link Metrics#registry()}.
+     * @param cache prediction cache or {@code null} to compute every request
+     */
+    public void setCache(PredictionCache cache) {
+        this.cache = cache;
+        if (cache != null) {
+            MetricsRegistry registry = Metrics.registry();
+            registry.gauge("slopeone.cache.hits", cache::getHits);
+            registry.gauge("slopeone.cache.misses", cache::getMisses);
+            registry.gauge("slopeone.cache.evictions", cache::getEvictions);
+            registry.gauge("slopeone.cache.size", cache::size);
+        }
+    }
+
+    /**
+     * @return prediction cache or {@code null} if predictions are not cached
+     */
+    public PredictionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Predict ratings of all items a known user has not rated
+     * @param user user to predict for
+     * @return predicted ratings, unmodifiable when a cache is set
+     */
+    public Map<Item, Double> predict(User user) {
+        PredictionCache current = cache;
+        if (current != null) {
+            return current.get(user, snapshot::get);
+        }
+        return snapshot.get().predict(user);
+    }
+
+    /**
+     * Recommend the best unrated items for a known user
+     * @param user user to recommend for
+     * @param n maximum number of recommendations
+     * @return recommendations ordered from the highest predicted rating
+     */
+    public List<Recommendation> recommend(User user, int n) {
+        return snapshot.get().recommend(user, n);
     }
 
     /**
@@ -63,32 +260,13 @@ public class SlopeOne {
      *
      * @param data
      *            existing user data and their items' ratings
+     * @return existing and predicted ratings of every user
      */
-    private static void predict(Map<User, HashMap<Item, Double>> data) {
-        HashMap<Item, Double> uPred = new HashMap<>();
-        HashMap<Item, Integer> uFreq = new HashMap<>();
-        for (Item j : diff.keySet()) {
-            uFreq.put(j, 0);
-            uPred.put(j, 0.0);
-        }
+    public Map<User, HashMap<Item, Double>> predict(Map<User, HashMap<Item, Double>> data) {
+        SlopeOneModel current = snapshot.get();
+        Map<User, HashMap<Item, Double>> outputData = new HashMap<>();
         for (Map.Entry<User, HashMap<Item, Double>> e : data.entrySet()) {
-            for (Item j : e.getValue().keySet()) {
-                for (Item k : diff.keySet()) {
-                    try {
-                        double predictedValue = diff.get(k).get(j) + e.getValue().get(j);
-                        double finalValue = predictedValue * freq.get(k).get(j);
-                        uPred.put(k, uPred.get(k) + finalValue);
-                        uFreq.put(k, uFreq.get(k) + freq.get(k).get(j));
-                    } catch (NullPointerException _) {
-                    }
-                }
-            }
-            HashMap<Item, Double> clean = new HashMap<>();
-            for (Item j : uPred.keySet()) {
-                if (uFreq.get(j) > 0) {
-                    clean.put(j, uPred.get(j) / uFreq.get(j));
-                }
-            }
+            HashMap<Item, Double> clean = new HashMap<>(current.predict(e.getValue()));
             for (Item j : InputData.items) {
                 if (e.getValue().containsKey(j)) {
                     clean.put(j, e.getValue().get(j));
@@ -98,18 +276,18 @@ public class SlopeOne {
             }
             outputData.put(e.getKey(), clean);
         }
-        printData(outputData);
+        return outputData;
     }
 
     private static void printData(Map<User, HashMap<Item, Double>> data) {
+        NumberFormat formatter = new DecimalFormat("#0.000");
         for (User user : data.keySet()) {
             System.out.println(user.getUsername() + ":");
-            print(data.get(user));
+            print(data.get(user), formatter);
         }
     }
 
-    private static void print(HashMap<Item, Double> hashMap) {
-        NumberFormat formatter = new DecimalFormat("#0.000");
+    private static void print(HashMap<Item, Double> hashMap, NumberFormat formatter) {
         for (Item j : hashMap.keySet()) {
             System.out.println(" " + j.getItemName() + " --> " + formatter.format(hashMap.get(j).doubleValue()));
         }
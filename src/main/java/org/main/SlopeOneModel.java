@@ -0,0 +1,745 @@
+package org.main;
+
+import org.metrics.Counter;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Slope One model backed by primitive arrays. Items are translated to dense ids through an
+ * {@link ItemDictionary} and pair statistics are kept as raw sums and counts in a {@link PairMatrix},
+ * so training never boxes a value and averages are only computed when predicting.
+ * <p>
+ * Because the raw statistics and every user's ratings are kept, single ratings can be added,
+ * updated or removed in {@code O(items rated by that user)} without rebuilding the matrix.
+ * <p>
+ * Predictions are computed by a {@link SlopeOneScheme}, weighted Slope One by default. Bi-polar
+ * Slope One additionally needs separate statistics of liked and disliked pairs, which are only kept
+ * after {@link #enableBiPolar()}.
+ * <p>
+ * A model is not thread-safe while it is being changed. {@link #snapshot()} returns a read-only
+ * copy that any number of threads may query without locking. Snapshots share structure with the
+ * model: pair statistics are copied on write by page, user ratings by user, and the dictionaries are
+ * shared read-only views, so a snapshot costs {@code O(users + items + pages)} reference copies and
+ * every later update clones at most the pages and the user it touches.
+ */
+public class SlopeOneModel {
+    private static final Histogram PREPARE_NANOS = Metrics.registry().histogram("slopeone.train.prepare.nanos");
+    private static final Histogram ACCUMULATE_NANOS = Metrics.registry().histogram("slopeone.train.accumulate.nanos");
+    private static final Histogram MERGE_NANOS = Metrics.registry().histogram("slopeone.train.merge.nanos");
+    private static final Histogram PREDICT_NANOS = Metrics.registry().histogram("slopeone.predict.nanos");
+    private static final Histogram RECOMMEND_NANOS = Metrics.registry().histogram("slopeone.recommend.nanos");
+    private static final Counter PAIR_UPDATES = Metrics.registry().counter("slopeone.pair.updates");
+
+    private final ItemDictionary dictionary;
+    private final NameRegistry userIds;
+    private final List<UserRatings> users;
+    private final boolean readOnly;
+    private int epoch;
+    private PairMatrix pairs;
+    private PairMatrix likes;
+    private PairMatrix dislikes;
+    private SlopeOneScheme scheme = new WeightedSlopeOne();
+
+    /**
+     * Constructs an empty model that is filled through {@link #setRating(User, Item, double)}
+     */
+    public SlopeOneModel() {
+        this(new ItemDictionary(), PairMatrix.forCatalog(0));
+    }
+
+    /**
+     * Constructs a model over existing statistics
+     * @param dictionary item ids used by {@code pairs}
+     * @param pairs raw pair statistics
+     */
+    public SlopeOneModel(ItemDictionary dictionary, PairMatrix pairs) {
+        this.dictionary = dictionary;
+        this.userIds = new NameRegistry();
+        this.users = new ArrayList<>();
+        this.readOnly = false;
+        this.pairs = pairs;
+    }
+
+    /**
+     * Constructs a model from restored state, used by {@link SlopeOneModelStore}
+     */
+    SlopeOneModel(ItemDictionary dictionary, NameRegistry userIds, List<UserRatings> users, PairMatrix pairs,
+                  boolean readOnly) {
+        this.dictionary = dictionary;
+        this.userIds = userIds;
+        this.users = users;
+        this.readOnly = readOnly;
+        this.pairs = pairs;
+    }
+
+    private SlopeOneModel(SlopeOneModel other) {
+        this(other, other.pairs.copy(), other.likes == null ? null : other.likes.copy(),
+                other.dislikes == null ? null : other.dislikes.copy());
+    }
+
+    private SlopeOneModel(SlopeOneModel other, PairMatrix pairs, PairMatrix likes, PairMatrix dislikes) {
+        this.dictionary = other.dictionary.snapshot();
+        this.userIds = other.userIds.snapshot();
+        this.users = new ArrayList<>(other.users);
+        this.readOnly = true;
+        this.pairs = pairs;
+        this.likes = likes;
+        this.dislikes = dislikes;
+        this.scheme = other.scheme;
+        other.epoch = Pages.nextEpoch();
+    }
+
+    /**
+     * @return read-only copy of the current state, safe to share between threads once published
+     */
+    public SlopeOneModel snapshot() {
+        return new SlopeOneModel(this);
+    }
+
+    /**
+     * Based on the available data, calculate the relationships between the
+     * items and number of occurences
+     *
+     * @param data
+     *            existing user data and their items' ratings
+     * @return trained model
+     */
+    public static SlopeOneModel train(Map<User, ? extends Map<Item, Double>> data) {
+        SlopeOneModel model = prepare(data);
+        model.accumulateUsers();
+        return model;
+    }
+
+    /**
+     * Add the pairs of every user to the empty pair statistics
+     */
+    private void accumulateUsers() {
+        long start = Metrics.start();
+        for (UserRatings ratings : users) {
+            accumulate(pairs, ratings.ids(), ratings.ratings(), ratings.size(), 1);
+        }
+        ACCUMULATE_NANOS.recordSince(start);
+    }
+
+    /**
+     * Build the differences matrix from a stream of users without materialising a rating map.
+     * Users may be produced by a parallel stream, they are accumulated in encounter order. A user
+     * that appears more than once, for example because its rows were not consecutive, is merged:
+     * its earlier pairs are removed and added again with the combined ratings, a later rating of
+     * the same item replaces the earlier one.
+     *
+     * @param dictionary
+     *            item ids used by the streamed ratings
+     * @param users
+     *            users and their ratings
+     * @return trained model
+     */
+    public static SlopeOneModel train(ItemDictionary dictionary, Stream<RatedUser> users) {
+        SlopeOneModel model = new SlopeOneModel(dictionary, PairMatrix.forCatalog(dictionary.size()));
+        long start = Metrics.start();
+        users.forEachOrdered(rated -> model.merge(rated.getUser(), rated.getRatings()));
+        ACCUMULATE_NANOS.recordSince(start);
+        return model;
+    }
+
+    /**
+     * Build the differences matrix on several cores. Users are split into {@code parallelism} shards
+     * of consecutive users, every shard fills its own partial matrix and the partial matrices are
+     * merged in shard order, so repeated runs with the same parallelism give identical results.
+     * <p>
+     * Only dense catalogs, up to {@link PairMatrix#DENSE_LIMIT} items, are sharded. A sparse partial
+     * holds most of the co-rated pairs of the whole table, so sharding a sparse catalog multiplies the
+     * allocation and the merge costs more than the shards save. Sparse catalogs are trained on the
+     * calling thread, see {@code docs/benchmark-results.md}.
+     *
+     * @param data
+     *            existing user data and their items' ratings
+     * @param parallelism
+     *            number of worker threads and shards
+     * @return trained model
+     */
+    public static SlopeOneModel train(Map<User, ? extends Map<Item, Double>> data, int parallelism) {
+        SlopeOneModel model = prepare(data);
+        if (parallelism <= 1 || !(model.pairs instanceof TriangularPairMatrix)) {
+            model.accumulateUsers();
+            return model;
+        }
+        UserRatings[] users = model.users.toArray(new UserRatings[0]);
+        int items = model.dictionary.size();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = Metrics.start();
+            PairMatrix[] partials = pool.submit(() -> IntStream.range(0, parallelism).parallel()
+                    .mapToObj(shard -> {
+                        PairMatrix partial = PairMatrix.forCatalog(items);
+                        int from = (int) ((long) users.length * shard / parallelism);
+                        int to = (int) ((long) users.length * (shard + 1) / parallelism);
+                        for (int u = from; u < to; u++) {
+                            accumulate(partial, users[u].ids(), users[u].ratings(), users[u].size(), 1);
+                        }
+                        return partial;
+                    })
+                    .toArray(PairMatrix[]::new)).join();
+            ACCUMULATE_NANOS.recordSince(start);
+            start = Metrics.start();
+            model.pairs = merge(pool, partials, parallelism);
+            MERGE_NANOS.recordSince(start);
+        } finally {
+            pool.shutdown();
+        }
+        return model;
+    }
+
+    /**
+     * Assign item ids and convert every user's ratings, leaving the pair statistics empty
+     */
+    private static SlopeOneModel prepare(Map<User, ? extends Map<Item, Double>> data) {
+        long start = Metrics.start();
+        ItemDictionary dictionary = new ItemDictionary();
+        for (Map<Item, Double> ratings : data.values()) {
+            for (Item item : ratings.keySet()) {
+                dictionary.intern(item);
+            }
+        }
+        SlopeOneModel model = new SlopeOneModel(dictionary, PairMatrix.forCatalog(dictionary.size()));
+        for (Map.Entry<User, ? extends Map<Item, Double>> e : data.entrySet()) {
+            UserRatings ratings = new UserRatings(e.getValue().size());
+            for (Map.Entry<Item, Double> rating : e.getValue().entrySet()) {
+                ratings.add(dictionary.idOf(rating.getKey()), rating.getValue());
+            }
+            model.putUser(e.getKey(), ratings);
+        }
+        PREPARE_NANOS.recordSince(start);
+        return model;
+    }
+
+    /**
+     * Sum dense partial matrices in shard order. The triangle is merged by slices in parallel, every
+     * slot still receives the shards in the same order.
+     */
+    private static PairMatrix merge(ForkJoinPool pool, PairMatrix[] partials, int parallelism) {
+        TriangularPairMatrix dense = (TriangularPairMatrix) partials[0];
+        int slots = dense.slots();
+        int slices = parallelism * 4;
+        pool.submit(() -> IntStream.range(0, slices).parallel().forEach(slice -> {
+            int from = (int) ((long) slots * slice / slices);
+            int to = (int) ((long) slots * (slice + 1) / slices);
+            for (int p = 1; p < partials.length; p++) {
+                dense.addRange((TriangularPairMatrix) partials[p], from, to);
+            }
+        })).join();
+        return dense;
+    }
+
+    /**
+     * Start keeping the liked and disliked pair statistics needed by {@link BiPolarSlopeOne}. They are
+     * built from the stored ratings once and maintained on every later update, which then costs
+     * {@code O(r^2)} for a user with {@code r} ratings because the user's average moves. They are
+     * not saved by {@link SlopeOneModelStore}, enable them again after loading.
+     */
+    public void enableBiPolar() {
+        checkWritable();
+        if (likes != null) {
+            return;
+        }
+        likes = PairMatrix.forCatalog(pairs.capacity());
+        dislikes = PairMatrix.forCatalog(pairs.capacity());
+        for (UserRatings ratings : users) {
+            accumulateBiPolar(ratings, 1);
+        }
+    }
+
+    /**
+     * Add or remove the liked and disliked pairs of one user
+     */
+    private void accumulateBiPolar(UserRatings ratings, int sign) {
+        int n = ratings.size();
+        double mean = mean(ratings.ratings(), n);
+        for (int a = 0; a < n; a++) {
+            double ra = ratings.rating(a);
+            for (int b = a + 1; b < n; b++) {
+                double rb = ratings.rating(b);
+                if (ra > mean && rb > mean) {
+                    likes.add(ratings.id(a), ratings.id(b), sign * (ra - rb), sign);
+                } else if (ra < mean && rb < mean) {
+                    dislikes.add(ratings.id(a), ratings.id(b), sign * (ra - rb), sign);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param ratings rating values
+     * @param n number of used entries
+     * @return average of the first {@code n} ratings, {@code 0} if there are none
+     */
+    static double mean(double[] ratings, int n) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += ratings[i];
+        }
+        return n == 0 ? 0.0 : sum / n;
+    }
+
+    /**
+     * Copy of this model without pairs supported by less than {@code minSupport} users. Dropping the
+     * long tail of rare pairs shrinks the matrix and the work per prediction, at some accuracy cost.
+     * @param minSupport smallest number of co-rating users a kept pair needs
+     * @return read-only, pruned snapshot
+     */
+    public SlopeOneModel pruned(int minSupport) {
+        return new SlopeOneModel(this, prune(pairs, minSupport), likes == null ? null : prune(likes, minSupport),
+                dislikes == null ? null : prune(dislikes, minSupport));
+    }
+
+    /**
+     * Copy of this model that keeps only the {@code k} best supported neighbors of every item in a
+     * {@link NeighborIndex}, so a prediction costs {@code O(rated items * k)} instead of growing with
+     * the catalog. The bi-polar statistics are indexed the same way when they are kept.
+     * @param k neighbors kept per item
+     * @return read-only snapshot over neighbor indexes
+     */
+    public SlopeOneModel neighbors(int k) {
+        return new SlopeOneModel(this, NeighborIndex.build(pairs, k),
+                likes == null ? null : NeighborIndex.build(likes, k),
+                dislikes == null ? null : NeighborIndex.build(dislikes, k));
+    }
+
+    private static PairMatrix prune(PairMatrix source, int minSupport) {
+        int items = source.capacity();
+        int kept = 0;
+        for (int i = 0; i < items; i++) {
+            for (int d = source.degree(i) - 1; d >= 0; d--) {
+                int k = source.neighbor(i, d);
+                if (k < i && source.count(i, k) >= minSupport) {
+                    kept++;
+                }
+            }
+        }
+        SparsePairMatrix pruned = new SparsePairMatrix(items, kept);
+        for (int i = 0; i < items; i++) {
+            for (int d = source.degree(i) - 1; d >= 0; d--) {
+                int k = source.neighbor(i, d);
+                int count = source.count(i, k);
+                if (k < i && count >= minSupport) {
+                    pruned.add(i, k, source.sum(i, k), count);
+                }
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Add a new rating or update an existing one and adjust every pair it takes part in
+     * @param user user giving the rating
+     * @param item rated item
+     * @param rating rating value
+     */
+    public void setRating(User user, Item item, double rating) {
+        checkWritable();
+        int id = dictionary.intern(item);
+        ensureCapacity(dictionary.size());
+        UserRatings ratings = ratingsOf(user);
+        if (ratings == null) {
+            ratings = new UserRatings();
+            ratings.owner = epoch;
+            putUser(user, ratings);
+        } else {
+            ratings = writable(user, ratings);
+        }
+        if (likes != null) {
+            accumulateBiPolar(ratings, -1);
+        }
+        int index = ratings.indexOf(id);
+        if (index < 0) {
+            for (int i = 0; i < ratings.size(); i++) {
+                pairs.add(id, ratings.id(i), rating - ratings.rating(i), 1);
+            }
+            ratings.add(id, rating);
+        } else {
+            double change = rating - ratings.rating(index);
+            for (int i = 0; i < ratings.size(); i++) {
+                if (i != index) {
+                    pairs.add(id, ratings.id(i), change, 0);
+                }
+            }
+            ratings.set(index, rating);
+        }
+        if (likes != null) {
+            accumulateBiPolar(ratings, 1);
+        }
+    }
+
+    /**
+     * Remove a rating and every pair observation it contributed
+     * @param user user that gave the rating
+     * @param item rated item
+     * @return {@code true} if the rating existed
+     */
+    public boolean removeRating(User user, Item item) {
+        checkWritable();
+        UserRatings ratings = ratingsOf(user);
+        int id = dictionary.idOf(item);
+        int index = ratings == null || id < 0 ? -1 : ratings.indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        ratings = writable(user, ratings);
+        if (likes != null) {
+            accumulateBiPolar(ratings, -1);
+        }
+        double rating = ratings.rating(index);
+        for (int i = 0; i < ratings.size(); i++) {
+            if (i != index) {
+                pairs.add(id, ratings.id(i), ratings.rating(i) - rating, -1);
+            }
+        }
+        ratings.remove(index);
+        if (likes != null) {
+            accumulateBiPolar(ratings, 1);
+        }
+        return true;
+    }
+
+    /**
+     * Register a user, or replace the ratings of a known one
+     */
+    private void putUser(User user, UserRatings ratings) {
+        int id = userIds.intern(user.getUsername());
+        if (id == users.size()) {
+            users.add(ratings);
+        } else {
+            users.set(id, ratings);
+        }
+    }
+
+    /**
+     * Add the pairs of a streamed user, replacing the pairs of an earlier appearance of the same user
+     */
+    private void merge(User user, UserRatings ratings) {
+        UserRatings known = ratingsOf(user);
+        if (known != null) {
+            accumulate(pairs, known.ids(), known.ratings(), known.size(), -1);
+            UserRatings merged = known.copy();
+            for (int i = 0; i < ratings.size(); i++) {
+                int index = merged.indexOf(ratings.id(i));
+                if (index < 0) {
+                    merged.add(ratings.id(i), ratings.rating(i));
+                } else {
+                    merged.set(index, ratings.rating(i));
+                }
+            }
+            ratings = merged;
+        }
+        putUser(user, ratings);
+        accumulate(pairs, ratings.ids(), ratings.ratings(), ratings.size(), 1);
+    }
+
+    /**
+     * Copy ratings still shared with a snapshot before they are changed
+     */
+    private UserRatings writable(User user, UserRatings ratings) {
+        if (ratings.owner == epoch) {
+            return ratings;
+        }
+        UserRatings copy = ratings.copy();
+        copy.owner = epoch;
+        putUser(user, copy);
+        return copy;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Slope One snapshot is read-only");
+        }
+    }
+
+    private void ensureCapacity(int items) {
+        pairs = grow(pairs, items);
+        if (likes != null) {
+            likes = grow(likes, items);
+            dislikes = grow(dislikes, items);
+        }
+    }
+
+    private static PairMatrix grow(PairMatrix matrix, int items) {
+        if (items <= matrix.capacity()) {
+            return matrix;
+        }
+        if (matrix instanceof TriangularPairMatrix dense && items > PairMatrix.DENSE_LIMIT) {
+            matrix = dense.toSparse();
+        }
+        matrix.ensureCapacity(items);
+        return matrix;
+    }
+
+    /**
+     * Add or remove all pairs formed by one user's ratings
+     * @param pairs matrix to update
+     * @param ids item ids rated by the user
+     * @param ratings ratings matching {@code ids}
+     * @param n number of used entries
+     * @param sign {@code 1} to add the user, {@code -1} to remove
+     */
+    static void accumulate(PairMatrix pairs, int[] ids, double[] ratings, int n, int sign) {
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                pairs.add(ids[a], ids[b], sign * (ratings[a] - ratings[b]), sign);
+            }
+        }
+        PAIR_UPDATES.add((long) n * (n - 1) / 2);
+    }
+
+    /**
+     * Predict ratings of all items a known user has not rated, using the current statistics
+     * @param user user to predict for
+     * @return predicted ratings, empty if the user has no ratings
+     */
+    public Map<Item, Double> predict(User user) {
+        UserRatings ratings = ratingsOf(user);
+        if (ratings == null) {
+            return new HashMap<>();
+        }
+        PredictionScratch scratch = PredictionScratch.acquire();
+        try {
+            predict(ratings.ids(), ratings.ratings(), ratings.size(), scratch);
+            return collect(scratch);
+        } finally {
+            PredictionScratch.release(scratch);
+        }
+    }
+
+    /**
+     * Predict ratings of all items the user has not rated
+     * @param ratings existing ratings of one user
+     * @return predicted ratings, items without any co-rated pair are left out
+     */
+    public Map<Item, Double> predict(Map<Item, Double> ratings) {
+        PredictionScratch scratch = PredictionScratch.acquire();
+        try {
+            int[] ids = scratch.ids(ratings.size());
+            double[] values = scratch.ratings(ratings.size());
+            int n = 0;
+            for (Map.Entry<Item, Double> e : ratings.entrySet()) {
+                int id = dictionary.idOf(e.getKey());
+                if (id >= 0) {
+                    ids[n] = id;
+                    values[n++] = e.getValue();
+                }
+            }
+            predict(ids, values, n, scratch);
+            return collect(scratch);
+        } finally {
+            PredictionScratch.release(scratch);
+        }
+    }
+
+    private Map<Item, Double> collect(PredictionScratch scratch) {
+        Map<Item, Double> predictions = new HashMap<>(scratch.touchedSize() * 2);
+        for (int i = 0; i < scratch.touchedSize(); i++) {
+            int k = scratch.touched(i);
+            if (scratch.isPredicted(k)) {
+                predictions.put(dictionary.item(k), scratch.prediction(k));
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Slope One prediction over item ids with the configured scheme
+     * @param ids item ids rated by the user
+     * @param ratings ratings matching {@code ids}
+     * @param n number of used entries
+     * @param out receives the prediction for every item id, {@link Double#NaN} if the item is not
+     *            predictable or already rated
+     */
+    public void predict(int[] ids, double[] ratings, int n, double[] out) {
+        PredictionScratch scratch = PredictionScratch.acquire();
+        try {
+            predict(ids, ratings, n, scratch);
+            Arrays.fill(out, 0, dictionary.size(), Double.NaN);
+            for (int i = 0; i < scratch.touchedSize(); i++) {
+                int k = scratch.touched(i);
+                if (scratch.isPredicted(k)) {
+                    out[k] = scratch.prediction(k);
+                }
+            }
+        } finally {
+            PredictionScratch.release(scratch);
+        }
+    }
+
+    /**
+     * Slope One prediction kernel. The scratch buffers are reset first, so the result only depends
+     * on this user's ratings, and missing pairs are skipped by their zero count.
+     * @param ids item ids rated by the user
+     * @param ratings ratings matching {@code ids}
+     * @param n number of used entries
+     * @param scratch receives the predictions of all touched, unrated items
+     */
+    public void predict(int[] ids, double[] ratings, int n, PredictionScratch scratch) {
+        long start = Metrics.start();
+        scratch.reset(dictionary.size());
+        for (int a = 0; a < n; a++) {
+            scratch.exclude(ids[a]);
+        }
+        scheme.score(this, ids, ratings, n, scratch);
+        PREDICT_NANOS.recordSince(start);
+    }
+
+    /**
+     * Recommend the best scored items a known user has not rated yet. Only neighbors of the user's
+     * rated items are scored and a bounded heap keeps the best {@code n}, so no catalog sized
+     * output is built.
+     * @param user user to recommend for
+     * @param n maximum number of recommendations
+     * @return recommendations ordered from the highest predicted rating
+     */
+    public List<Recommendation> recommend(User user, int n) {
+        UserRatings ratings = ratingsOf(user);
+        if (ratings == null || n <= 0) {
+            return new ArrayList<>();
+        }
+        return recommend(ratings.ids(), ratings.ratings(), ratings.size(), n);
+    }
+
+    /**
+     * Recommend the best scored unrated items for an arbitrary rating history
+     * @param ids item ids rated by the user
+     * @param ratings ratings matching {@code ids}
+     * @param size number of used entries
+     * @param n maximum number of recommendations, larger values are clamped to the number of candidates
+     * @return recommendations ordered from the highest predicted rating
+     */
+    public List<Recommendation> recommend(int[] ids, double[] ratings, int size, int n) {
+        long start = Metrics.start();
+        int candidates = 0;
+        for (int a = 0; a < size; a++) {
+            candidates += Math.min(pairs.degree(ids[a]), dictionary.size());
+        }
+        ScoreAccumulator scores = new ScoreAccumulator(Math.min(candidates, dictionary.size()) + size);
+        for (int a = 0; a < size; a++) {
+            scores.exclude(ids[a]);
+        }
+        scheme.score(this, ids, ratings, size, scores);
+        TopN top = new TopN(Math.min(n, Math.min(candidates, dictionary.size())));
+        scores.offerTo(top);
+        List<Recommendation> result = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            result.add(new Recommendation(dictionary.item(top.id(i)), top.score(i)));
+        }
+        RECOMMEND_NANOS.recordSince(start);
+        return result;
+    }
+
+    /**
+     * @param i first item
+     * @param j second item
+     * @return average of {@code r(i) - r(j)} or {@link Double#NaN} if no user rated both items
+     */
+    public double averageDifference(Item i, Item j) {
+        int a = dictionary.idOf(i);
+        int b = dictionary.idOf(j);
+        if (a < 0 || b < 0 || pairs.count(a, b) == 0) {
+            return Double.NaN;
+        }
+        return pairs.sum(a, b) / pairs.count(a, b);
+    }
+
+    /**
+     * @param i first item
+     * @param j second item
+     * @return number of users that rated both items
+     */
+    public int support(Item i, Item j) {
+        int a = dictionary.idOf(i);
+        int b = dictionary.idOf(j);
+        return a < 0 || b < 0 ? 0 : pairs.count(a, b);
+    }
+
+    /**
+     * @param user user to look up
+     * @param item rated item
+     * @return rating of the item or {@link Double#NaN} if the user has not rated it
+     */
+    public double ratingOf(User user, Item item) {
+        UserRatings ratings = ratingsOf(user);
+        int id = dictionary.idOf(item);
+        int index = ratings == null || id < 0 ? -1 : ratings.indexOf(id);
+        return index < 0 ? Double.NaN : ratings.rating(index);
+    }
+
+    /**
+     * @param user user to look up
+     * @return primitive ratings of the user or {@code null} if the user is unknown
+     */
+    public UserRatings ratingsOf(User user) {
+        int id = userIds.idOf(user.getUsername());
+        return id < 0 ? null : users.get(id);
+    }
+
+    /**
+     * @return {@code true} if this model is a snapshot
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return user ids, matching the positions of {@link #users()}
+     */
+    NameRegistry userIds() {
+        return userIds;
+    }
+
+    /**
+     * @return ratings of every user indexed by user id, owned by the model
+     */
+    List<UserRatings> users() {
+        return users;
+    }
+
+    public ItemDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public PairMatrix getPairs() {
+        return pairs;
+    }
+
+    /**
+     * @return statistics of pairs liked by the same users, {@code null} unless bi-polar is enabled
+     */
+    public PairMatrix getLikes() {
+        return likes;
+    }
+
+    /**
+     * @return statistics of pairs disliked by the same users, {@code null} unless bi-polar is enabled
+     */
+    public PairMatrix getDislikes() {
+        return dislikes;
+    }
+
+    public SlopeOneScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Choose how predictions are computed
+     * @param scheme prediction scheme
+     */
+    public void setScheme(SlopeOneScheme scheme) {
+        checkWritable();
+        this.scheme = scheme;
+    }
+}
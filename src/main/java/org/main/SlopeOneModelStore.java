@@ -0,0 +1,428 @@
+package org.main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and restores trained {@link SlopeOneModel}s. All values are little endian:
+ * <pre>
+ * header   int magic, int version, long payloadLength, long crc32 of the payload
+ * payload  int layout (0 dense, 1 sparse), int itemCount, itemCount x (int length, UTF-8 name),
+ *          int userCount, userCount x (int length, UTF-8 name, int n, int[n] ids, double[n] ratings),
+ *          padding to a multiple of 8 bytes, then the pairs:
+ *          dense   double[slots] sums, int[slots] counts
+ *          sparse  int tableLength, long[tableLength] keys, double[tableLength] sums, int[tableLength] counts
+ * </pre>
+ * A file with a different version or a checksum mismatch is rejected with an {@link IOException}.
+ * Counts and lengths are checked against the bytes left in the file before anything is allocated,
+ * so a corrupt file also fails with an {@link IOException} when the checksum is not verified.
+ * Dense pairs can be memory-mapped instead of loaded, see {@link #map(Path, boolean)}.
+ */
+public class SlopeOneModelStore {
+
+    private static final int MAGIC = 0x534C5031;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int DENSE = 0;
+    private static final int SPARSE = 1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private SlopeOneModelStore() {
+    }
+
+    /**
+     * Save a model
+     * @param model model or snapshot to save
+     * @param path file to create or overwrite
+     * @throws IOException If the file can not be written
+     */
+    public static void save(SlopeOneModel model, Path path) throws IOException {
+        PairMatrix pairs = model.getPairs();
+        if (pairs instanceof MappedPairMatrix) {
+            throw new IOException("A memory-mapped model is already stored on disk");
+        }
+        if (pairs instanceof NeighborIndex) {
+            throw new IOException("A neighbor index is derived from a full model, save the full model instead");
+        }
+        ItemDictionary dictionary = model.getDictionary();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(pairs instanceof TriangularPairMatrix ? DENSE : SPARSE);
+            out.putInt(dictionary.size());
+            for (int i = 0; i < dictionary.size(); i++) {
+                out.putString(dictionary.item(i).getItemName());
+            }
+            out.putInt(model.users().size());
+            for (int u = 0; u < model.users().size(); u++) {
+                UserRatings ratings = model.users().get(u);
+                out.putString(model.userIds().name(u));
+                out.putInt(ratings.size());
+                for (int i = 0; i < ratings.size(); i++) {
+                    out.putInt(ratings.id(i));
+                }
+                for (int i = 0; i < ratings.size(); i++) {
+                    out.putDouble(ratings.rating(i));
+                }
+            }
+            out.align();
+            if (pairs instanceof TriangularPairMatrix dense) {
+                int slots = TriangularPairMatrix.slots(dictionary.size());
+                int remaining = slots;
+                for (double[] page : dense.sumPages()) {
+                    for (int i = 0; i < page.length && i < remaining; i++) {
+                        out.putDouble(page[i]);
+                    }
+                    remaining -= page.length;
+                }
+                remaining = slots;
+                for (int[] page : dense.countPages()) {
+                    for (int i = 0; i < page.length && i < remaining; i++) {
+                        out.putInt(page[i]);
+                    }
+                    remaining -= page.length;
+                }
+            } else {
+                SparsePairMatrix sparse = (SparsePairMatrix) pairs;
+                out.putInt(sparse.tableLength());
+                out.align();
+                for (long[] page : sparse.keyPages()) {
+                    for (long key : page) {
+                        out.putLong(key);
+                    }
+                }
+                for (double[] page : sparse.sumPages()) {
+                    for (double sum : page) {
+                        out.putDouble(sum);
+                    }
+                }
+                for (int[] page : sparse.countPages()) {
+                    for (int count : page) {
+                        out.putInt(count);
+                    }
+                }
+            }
+            out.finish();
+        }
+    }
+
+    /**
+     * Load a model onto the heap, it can keep receiving rating updates
+     * @param path saved model
+     * @return writable model
+     * @throws IOException If the file can not be read, has another version or is corrupt
+     */
+    public static SlopeOneModel load(Path path) throws IOException {
+        return read(path, false, true);
+    }
+
+    /**
+     * Restore a read-only model. Dense pairs stay in the memory-mapped file, sparse pairs are
+     * bulk-loaded onto the heap.
+     * @param path saved model
+     * @param verify {@code true} to check the checksum, which reads the whole file once
+     * @return read-only model snapshot
+     * @throws IOException If the file can not be read, has another version or is corrupt
+     */
+    public static SlopeOneModel map(Path path, boolean verify) throws IOException {
+        return read(path, true, verify);
+    }
+
+    private static SlopeOneModel read(Path path, boolean mapped, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a Slope One model: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a Slope One model: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported Slope One model version " + version + ": " + path);
+            }
+            long payloadLength = header.getLong();
+            long checksum = header.getLong();
+            if (channel.size() != HEADER_BYTES + payloadLength) {
+                throw new IOException("Truncated Slope One model: " + path);
+            }
+            Input in = new Input(channel, HEADER_BYTES + payloadLength, verify);
+            int layout = in.getInt();
+            ItemDictionary dictionary = new ItemDictionary();
+            int items = in.getCount(4);
+            for (int i = 0; i < items; i++) {
+                if (dictionary.intern(new Item(in.getString())) != i) {
+                    throw new IOException("Duplicate item name, Slope One model is corrupt: " + path);
+                }
+            }
+            int userCount = in.getCount(8);
+            NameRegistry userIds = new NameRegistry();
+            List<UserRatings> users = new ArrayList<>(userCount);
+            for (int u = 0; u < userCount; u++) {
+                if (userIds.intern(in.getString()) != u) {
+                    throw new IOException("Duplicate user name, Slope One model is corrupt: " + path);
+                }
+                int n = in.getCount(12);
+                int[] ids = new int[n];
+                for (int i = 0; i < n; i++) {
+                    ids[i] = in.getInt();
+                    if (ids[i] < 0 || ids[i] >= items) {
+                        throw new IOException("Unknown item id " + ids[i] + ", Slope One model is corrupt: " + path);
+                    }
+                }
+                UserRatings ratings = new UserRatings(n);
+                for (int i = 0; i < n; i++) {
+                    ratings.add(ids[i], in.getDouble());
+                }
+                users.add(ratings);
+            }
+            in.align();
+            PairMatrix pairs;
+            if (layout == DENSE) {
+                if (items > TriangularPairMatrix.MAX_ITEMS) {
+                    throw new IOException("Dense pairs of " + items + " items, Slope One model is corrupt: " + path);
+                }
+                int slots = TriangularPairMatrix.slots(items);
+                ByteBuffer sums = in.region(8L * slots);
+                ByteBuffer counts = in.region(4L * slots);
+                if (mapped) {
+                    pairs = new MappedPairMatrix(items, sums.asDoubleBuffer(), counts.asIntBuffer());
+                } else {
+                    TriangularPairMatrix dense = new TriangularPairMatrix(items);
+                    DoubleBuffer sumBuffer = sums.asDoubleBuffer();
+                    IntBuffer countBuffer = counts.asIntBuffer();
+                    for (double[] page : dense.sumPages()) {
+                        sumBuffer.get(page);
+                    }
+                    for (int[] page : dense.countPages()) {
+                        countBuffer.get(page);
+                    }
+                    pairs = dense;
+                }
+            } else if (layout == SPARSE) {
+                int length = in.getCount(20);
+                if (Integer.bitCount(length) != 1) {
+                    throw new IOException("Pair table length " + length + ", Slope One model is corrupt: " + path);
+                }
+                in.align();
+                LongBuffer keys = in.region(8L * length).asLongBuffer();
+                checkKeys(keys.duplicate(), items, path);
+                DoubleBuffer sums = in.region(8L * length).asDoubleBuffer();
+                IntBuffer counts = in.region(4L * length).asIntBuffer();
+                pairs = new SparsePairMatrix(items, length, keys, sums, counts);
+            } else {
+                throw new IOException("Unknown pair layout " + layout + ": " + path);
+            }
+            if (verify && in.checksum() != checksum) {
+                throw new IOException("Checksum mismatch, Slope One model is corrupt: " + path);
+            }
+            return new SlopeOneModel(dictionary, userIds, users, pairs, mapped);
+        }
+    }
+
+    /**
+     * Make sure every stored pair addresses two distinct known items before neighbor lists are built
+     */
+    private static void checkKeys(LongBuffer keys, int items, Path path) throws IOException {
+        while (keys.hasRemaining()) {
+            long key = keys.get();
+            int hi = (int) (key >>> 32);
+            int lo = (int) key;
+            if (key != -1L && (hi >= items || lo < 0 || lo >= hi)) {
+                throw new IOException("Invalid item pair " + hi + "/" + lo + ", Slope One model is corrupt: " + path);
+            }
+        }
+    }
+
+    /**
+     * Buffered sequential writer that checksums the payload and writes the header last
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ORDER);
+        private final CRC32 crc = new CRC32();
+        private long length;
+
+        private Output(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(HEADER_BYTES);
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(4).putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(8).putLong(value);
+        }
+
+        private void putDouble(double value) throws IOException {
+            ensure(8).putDouble(value);
+        }
+
+        private void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                int chunk = Math.min(bytes.length - offset, buffer.capacity());
+                ensure(chunk).put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        private void align() throws IOException {
+            while ((HEADER_BYTES + length + buffer.position()) % 8 != 0) {
+                ensure(1).put((byte) 0);
+            }
+        }
+
+        private ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            length += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void finish() throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(crc.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Buffered sequential reader that checksums everything it consumes and maps large sections
+     */
+    private static class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ORDER);
+        private final CRC32 crc;
+        private final long end;
+        private long position = HEADER_BYTES;
+
+        private Input(FileChannel channel, long end, boolean verify) {
+            this.channel = channel;
+            this.end = end;
+            this.crc = verify ? new CRC32() : null;
+            buffer.flip();
+        }
+
+        private int getInt() throws IOException {
+            return require(4).getInt();
+        }
+
+        private double getDouble() throws IOException {
+            return require(8).getDouble();
+        }
+
+        /**
+         * Read a number of entries, checked against the bytes left before anything is allocated for them
+         * @param minimumBytes smallest encoded size of one entry
+         */
+        private int getCount(int minimumBytes) throws IOException {
+            int count = getInt();
+            if (count < 0 || (long) count * minimumBytes > end - position) {
+                throw new IOException("Corrupt Slope One model, " + count + " entries do not fit into the remaining "
+                        + (end - position) + " bytes");
+            }
+            return count;
+        }
+
+        private String getString() throws IOException {
+            byte[] bytes = new byte[getCount(1)];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int chunk = Math.min(bytes.length - offset, buffer.capacity());
+                require(chunk).get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void align() throws IOException {
+            while (position % 8 != 0) {
+                require(1).get();
+            }
+        }
+
+        /**
+         * Map the next section of the file, dropping any read-ahead bytes
+         */
+        private ByteBuffer region(long bytes) throws IOException {
+            buffer.position(buffer.limit());
+            if (bytes > end - position) {
+                throw new IOException("Corrupt Slope One model, pair section of " + bytes + " bytes exceeds the remaining "
+                        + (end - position) + " bytes");
+            }
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IOException("Pair section of " + bytes + " bytes can not be mapped");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            mapped.order(ORDER);
+            if (crc != null) {
+                crc.update(mapped.duplicate());
+            }
+            position += bytes;
+            return mapped;
+        }
+
+        private long checksum() {
+            return crc.getValue();
+        }
+
+        /**
+         * Make the next bytes available. {@code position} counts consumed bytes only, the buffer may
+         * hold bytes read ahead of it.
+         */
+        private ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                buffer.compact();
+                long fileOffset = position + buffer.position();
+                while (buffer.position() < bytes) {
+                    int read = channel.read(buffer, fileOffset);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of Slope One model");
+                    }
+                    fileOffset += read;
+                }
+                buffer.flip();
+            }
+            if (crc != null) {
+                ByteBuffer consumed = buffer.duplicate();
+                consumed.limit(consumed.position() + bytes);
+                crc.update(consumed);
+            }
+            position += bytes;
+            return buffer;
+        }
+    }
+}
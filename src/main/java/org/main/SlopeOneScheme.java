@@ -0,0 +1,23 @@
+package org.main;
+
+/**
+ * Strategy that turns a user's ratings into weighted Slope One contributions for candidate items.
+ * Implementations only read the model, so one instance may serve many threads.
+ */
+public interface SlopeOneScheme {
+
+    /**
+     * Score every candidate reachable from the user's ratings
+     * @param model trained model
+     * @param ids item ids rated by the user
+     * @param ratings ratings matching {@code ids}
+     * @param n number of used entries
+     * @param sink receives the contributions, items rated by the user are filtered by the sink
+     */
+    void score(SlopeOneModel model, int[] ids, double[] ratings, int n, ScoreSink sink);
+
+    /**
+     * @return smallest number of co-rating users a pair needs to be used
+     */
+    int getMinSupport();
+}
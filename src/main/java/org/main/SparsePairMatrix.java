@@ -0,0 +1,340 @@
+package org.main;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Sparse {@link PairMatrix} for large catalogs. Only co-rated pairs are stored, in an open addressing
+ * hash table with primitive {@code long} keys and parallel {@code double}/{@code int} value arrays,
+ * so no boxing happens on update. Every item also keeps the list of items it was co-rated with, so
+ * prediction only visits actual neighbors instead of the whole catalog.
+ * <p>
+ * The table is split into {@link Pages} that a {@link #copy()} shares with the original, the first
+ * write to a shared page clones it. Neighbor lists are shared as well, they only ever grow past the
+ * degree a copy has recorded.
+ */
+public class SparsePairMatrix implements PairMatrix {
+
+    private static final long EMPTY = -1L;
+    private static final double MAX_LOAD = 0.6;
+
+    /**
+     * Pages of 1024 slots keep the page table of a large hash table cache resident on lookups
+     */
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    private int items;
+    private int length;
+    private long[][] keys;
+    private double[][] sums;
+    private int[][] counts;
+    private int[] owners;
+    private int epoch;
+    private int size;
+    private int[][] adjacency;
+    private int[] degrees;
+
+    /**
+     * Constructs an empty matrix
+     * @param items number of items to address
+     */
+    public SparsePairMatrix(int items) {
+        this(items, 1024);
+    }
+
+    /**
+     * Constructs an empty matrix
+     * @param items number of items to address
+     * @param expectedPairs number of pairs to reserve space for
+     */
+    public SparsePairMatrix(int items, int expectedPairs) {
+        this.items = items;
+        this.adjacency = new int[items][];
+        this.degrees = new int[items];
+        allocate(tableSize(expectedPairs));
+    }
+
+    /**
+     * Constructs a matrix over a restored hash table, used by {@link SlopeOneModelStore}
+     * @param length table length, a power of two that every buffer holds
+     */
+    SparsePairMatrix(int items, int length, LongBuffer keys, DoubleBuffer sums, IntBuffer counts) {
+        this.items = items;
+        this.adjacency = new int[items][];
+        this.degrees = new int[items];
+        allocate(length);
+        for (int page = 0; page < this.keys.length; page++) {
+            keys.get(this.keys[page]);
+            sums.get(this.sums[page]);
+            counts.get(this.counts[page]);
+            for (long key : this.keys[page]) {
+                if (key != EMPTY) {
+                    size++;
+                    link((int) (key >>> 32), (int) key);
+                    link((int) key, (int) (key >>> 32));
+                }
+            }
+        }
+    }
+
+    private SparsePairMatrix(SparsePairMatrix other) {
+        this.items = other.items;
+        this.length = other.length;
+        this.keys = other.keys.clone();
+        this.sums = other.sums.clone();
+        this.counts = other.counts.clone();
+        this.owners = other.owners.clone();
+        this.epoch = Pages.nextEpoch();
+        other.epoch = Pages.nextEpoch();
+        this.size = other.size;
+        this.adjacency = Arrays.copyOf(other.adjacency, other.items);
+        this.degrees = Arrays.copyOf(other.degrees, other.items);
+    }
+
+    @Override
+    public void add(int i, int j, double difference, int count) {
+        int slot = insert(i > j ? key(i, j) : key(j, i));
+        int page = slot >>> PAGE_SHIFT;
+        if (owners[page] != epoch) {
+            own(page);
+        }
+        if (i > j) {
+            sums[page][slot & PAGE_MASK] += difference;
+        } else {
+            sums[page][slot & PAGE_MASK] -= difference;
+        }
+        counts[page][slot & PAGE_MASK] += count;
+    }
+
+    @Override
+    public double sum(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        int slot = find(i > j ? key(i, j) : key(j, i));
+        if (slot < 0) {
+            return 0.0;
+        }
+        double sum = sums[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+        return i > j ? sum : -sum;
+    }
+
+    @Override
+    public int count(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        int slot = find(i > j ? key(i, j) : key(j, i));
+        return slot < 0 ? 0 : counts[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+
+    @Override
+    public int degree(int item) {
+        return degrees[item];
+    }
+
+    @Override
+    public int neighbor(int item, int index) {
+        return adjacency[item][index];
+    }
+
+    @Override
+    public void ensureCapacity(int items) {
+        if (items > this.items) {
+            adjacency = Arrays.copyOf(adjacency, items);
+            degrees = Arrays.copyOf(degrees, items);
+            this.items = items;
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return items;
+    }
+
+    @Override
+    public PairMatrix copy() {
+        return new SparsePairMatrix(this);
+    }
+
+    /**
+     * Add the statistics of another sparse matrix, pairs are visited in table order
+     * @param other matrix to add
+     */
+    public void addAll(SparsePairMatrix other) {
+        ensureCapacity(other.items);
+        for (int page = 0; page < other.keys.length; page++) {
+            long[] otherKeys = other.keys[page];
+            for (int i = 0; i < otherKeys.length; i++) {
+                if (otherKeys[i] != EMPTY) {
+                    int slot = insert(otherKeys[i]);
+                    int target = slot >>> PAGE_SHIFT;
+                    if (owners[target] != epoch) {
+                        own(target);
+                    }
+                    sums[target][slot & PAGE_MASK] += other.sums[page][i];
+                    counts[target][slot & PAGE_MASK] += other.counts[page][i];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of stored pairs
+     */
+    public int pairs() {
+        return size;
+    }
+
+    /**
+     * @return number of hash table slots, a power of two
+     */
+    int tableLength() {
+        return length;
+    }
+
+    /**
+     * @return pages of pair keys, {@code -1} marks a free slot
+     */
+    long[][] keyPages() {
+        return keys;
+    }
+
+    /**
+     * @return pages of pair sums
+     */
+    double[][] sumPages() {
+        return sums;
+    }
+
+    /**
+     * @return pages of pair counts
+     */
+    int[][] countPages() {
+        return counts;
+    }
+
+    private int find(long key) {
+        int mask = length - 1;
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK]) != EMPTY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int insert(long key) {
+        if (size + 1 > length * MAX_LOAD) {
+            rehash(length << 1);
+        }
+        int mask = length - 1;
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK]) != EMPTY) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int page = slot >>> PAGE_SHIFT;
+        if (owners[page] != epoch) {
+            own(page);
+        }
+        keys[page][slot & PAGE_MASK] = key;
+        size++;
+        link((int) (key >>> 32), (int) key);
+        link((int) key, (int) (key >>> 32));
+        return slot;
+    }
+
+    /**
+     * @return first free slot of the probe sequence of a key that is not in the table, used by rehashing
+     */
+    private int free(long key) {
+        int mask = length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void link(int item, int neighbor) {
+        int[] row = adjacency[item];
+        if (row == null) {
+            row = adjacency[item] = new int[4];
+        } else if (degrees[item] == row.length) {
+            row = adjacency[item] = Arrays.copyOf(row, row.length << 1);
+        }
+        row[degrees[item]++] = neighbor;
+    }
+
+    private void rehash(int newLength) {
+        long[][] oldKeys = keys;
+        double[][] oldSums = sums;
+        int[][] oldCounts = counts;
+        allocate(newLength);
+        for (int page = 0; page < oldKeys.length; page++) {
+            for (int i = 0; i < oldKeys[page].length; i++) {
+                if (oldKeys[page][i] != EMPTY) {
+                    int slot = free(oldKeys[page][i]);
+                    keys[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = oldKeys[page][i];
+                    sums[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = oldSums[page][i];
+                    counts[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = oldCounts[page][i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Clone a page shared with a copy before it is written
+     */
+    private void own(int page) {
+        keys[page] = keys[page].clone();
+        sums[page] = sums[page].clone();
+        counts[page] = counts[page].clone();
+        owners[page] = epoch;
+    }
+
+    private void allocate(int length) {
+        int pages = Pages.count(length, PAGE_SHIFT);
+        this.length = length;
+        this.keys = new long[pages][];
+        this.sums = new double[pages][];
+        this.counts = new int[pages][];
+        this.owners = new int[pages];
+        for (int page = 0; page < pages; page++) {
+            keys[page] = new long[Pages.length(length, page, PAGE_SHIFT)];
+            Arrays.fill(keys[page], EMPTY);
+            sums[page] = new double[Pages.length(length, page, PAGE_SHIFT)];
+            counts[page] = new int[Pages.length(length, page, PAGE_SHIFT)];
+        }
+        Arrays.fill(owners, epoch);
+    }
+
+    private static int tableSize(int expectedPairs) {
+        int length = 16;
+        while (length * MAX_LOAD < expectedPairs) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    private static long key(int hi, int lo) {
+        return ((long) hi << 32) | lo;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
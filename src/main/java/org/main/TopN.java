@@ -0,0 +1,116 @@
+package org.main;
+
+/**
+ * Bounded min-heap that keeps the {@code n} best scored item ids. Equal scores prefer the lower id,
+ * so the selection does not depend on the order candidates are offered in.
+ */
+class TopN {
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+    private boolean sorted;
+
+    /**
+     * @param n number of items to keep
+     */
+    TopN(int n) {
+        this.ids = new int[n];
+        this.scores = new double[n];
+    }
+
+    /**
+     * @param id item id
+     * @param score predicted rating
+     */
+    void offer(int id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && better(id, score, 0)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * @return number of kept items
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param rank position, {@code 0} is the best item
+     * @return item id at the position
+     */
+    int id(int rank) {
+        sort();
+        return ids[rank];
+    }
+
+    /**
+     * @param rank position, {@code 0} is the best item
+     * @return score at the position
+     */
+    double score(int rank) {
+        sort();
+        return scores[rank];
+    }
+
+    /**
+     * Heap sort in place: repeatedly moving the worst item to the end leaves the best item first
+     */
+    private void sort() {
+        if (sorted) {
+            return;
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    private boolean better(int id, double score, int slot) {
+        return score > scores[slot] || (score == scores[slot] && id < ids[slot]);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!better(ids[parent], scores[parent], slot)) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot, int end) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= end) {
+                break;
+            }
+            if (child + 1 < end && better(ids[child], scores[child], child + 1)) {
+                child++;
+            }
+            if (!better(ids[slot], scores[slot], child)) {
+                break;
+            }
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,242 @@
+package org.main;
+
+import java.util.Arrays;
+
+/**
+ * Dense {@link PairMatrix} that keeps the strict lower triangle in flat primitive arrays.
+ * Pair {@code (hi, lo)} with {@code hi > lo} lives at {@code hi * (hi - 1) / 2 + lo}, so adding
+ * items only appends to the arrays.
+ * <p>
+ * The arrays are split into {@link Pages} that a {@link #copy()} shares with the original, the first
+ * write to a shared page clones it.
+ */
+public class TriangularPairMatrix implements PairMatrix {
+
+    /**
+     * Largest catalog whose triangle still fits into a single Java array
+     */
+    public static final int MAX_ITEMS = 65535;
+
+    /**
+     * Pages of 64 slots, pair updates of a rating batch are scattered over the whole triangle
+     */
+    private static final int PAGE_SHIFT = 6;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    private int items;
+    private double[][] sums;
+    private int[][] counts;
+    private int[] owners;
+    private int epoch;
+
+    /**
+     * Constructs an empty matrix
+     * @param items number of items to address
+     */
+    public TriangularPairMatrix(int items) {
+        checkSize(items);
+        this.items = items;
+        this.sums = new double[0][];
+        this.counts = new int[0][];
+        this.owners = new int[0];
+        allocate(0, slots(items));
+    }
+
+    private TriangularPairMatrix(TriangularPairMatrix other) {
+        this.items = other.items;
+        this.sums = other.sums.clone();
+        this.counts = other.counts.clone();
+        this.owners = other.owners.clone();
+        this.epoch = Pages.nextEpoch();
+        other.epoch = Pages.nextEpoch();
+    }
+
+    @Override
+    public void add(int i, int j, double difference, int count) {
+        int index = i > j ? index(i, j) : index(j, i);
+        int page = index >>> PAGE_SHIFT;
+        if (owners[page] != epoch) {
+            own(page);
+        }
+        if (i > j) {
+            sums[page][index & PAGE_MASK] += difference;
+        } else {
+            sums[page][index & PAGE_MASK] -= difference;
+        }
+        counts[page][index & PAGE_MASK] += count;
+    }
+
+    @Override
+    public double sum(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        return i > j ? sum(index(i, j)) : -sum(index(j, i));
+    }
+
+    @Override
+    public int count(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        return i > j ? count(index(i, j)) : count(index(j, i));
+    }
+
+    @Override
+    public int degree(int item) {
+        return items - 1;
+    }
+
+    @Override
+    public int neighbor(int item, int index) {
+        return index < item ? index : index + 1;
+    }
+
+    @Override
+    public void ensureCapacity(int items) {
+        if (items <= this.items) {
+            return;
+        }
+        checkSize(items);
+        int grown = Math.min(MAX_ITEMS, Math.max(items, this.items + (this.items >> 1)));
+        allocate(slots(this.items), slots(grown));
+        this.items = grown;
+    }
+
+    @Override
+    public int capacity() {
+        return items;
+    }
+
+    @Override
+    public PairMatrix copy() {
+        return new TriangularPairMatrix(this);
+    }
+
+    /**
+     * Add the statistics of another matrix of the same capacity, restricted to a slice of slots.
+     * Disjoint slices may be added concurrently as long as this matrix has not been copied.
+     * @param other matrix to add
+     * @param from first slot, inclusive
+     * @param to last slot, exclusive
+     */
+    public void addRange(TriangularPairMatrix other, int from, int to) {
+        int i = from;
+        while (i < to) {
+            int page = i >>> PAGE_SHIFT;
+            int offset = i & PAGE_MASK;
+            int end = Math.min(sums[page].length, offset + (to - i));
+            if (owners[page] != epoch) {
+                own(page);
+            }
+            double[] sum = sums[page];
+            int[] count = counts[page];
+            double[] otherSum = other.sums[page];
+            int[] otherCount = other.counts[page];
+            for (int k = offset; k < end; k++) {
+                sum[k] += otherSum[k];
+                count[k] += otherCount[k];
+            }
+            i += end - offset;
+        }
+    }
+
+    /**
+     * @return number of stored pair slots
+     */
+    public int slots() {
+        return slots(items);
+    }
+
+    /**
+     * Move all co-rated pairs into a sparse matrix, used once the catalog outgrows the dense layout
+     * @return sparse copy of this matrix
+     */
+    public SparsePairMatrix toSparse() {
+        int pairs = 0;
+        for (int[] page : counts) {
+            for (int count : page) {
+                if (count != 0) {
+                    pairs++;
+                }
+            }
+        }
+        SparsePairMatrix sparse = new SparsePairMatrix(items, pairs);
+        int index = 0;
+        for (int hi = 1; hi < items; hi++) {
+            for (int lo = 0; lo < hi; lo++, index++) {
+                int count = count(index);
+                if (count != 0) {
+                    sparse.add(hi, lo, sum(index), count);
+                }
+            }
+        }
+        return sparse;
+    }
+
+    /**
+     * @return pages of pair sums, together they hold {@link #slots()} entries
+     */
+    double[][] sumPages() {
+        return sums;
+    }
+
+    /**
+     * @return pages of pair counts, together they hold {@link #slots()} entries
+     */
+    int[][] countPages() {
+        return counts;
+    }
+
+    private double sum(int index) {
+        return sums[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    private int count(int index) {
+        return counts[index >>> PAGE_SHIFT][index & PAGE_MASK];
+    }
+
+    /**
+     * Clone a page shared with a copy before it is written
+     */
+    private void own(int page) {
+        sums[page] = sums[page].clone();
+        counts[page] = counts[page].clone();
+        owners[page] = epoch;
+    }
+
+    /**
+     * Extend the pages from {@code slots} to {@code grown} entries, the last page is widened in place
+     */
+    private void allocate(int slots, int grown) {
+        int pages = Pages.count(slots, PAGE_SHIFT);
+        int grownPages = Pages.count(grown, PAGE_SHIFT);
+        sums = Arrays.copyOf(sums, grownPages);
+        counts = Arrays.copyOf(counts, grownPages);
+        owners = Arrays.copyOf(owners, grownPages);
+        if (pages > 0 && sums[pages - 1].length < Pages.length(grown, pages - 1, PAGE_SHIFT)) {
+            sums[pages - 1] = Arrays.copyOf(sums[pages - 1], Pages.length(grown, pages - 1, PAGE_SHIFT));
+            counts[pages - 1] = Arrays.copyOf(counts[pages - 1], Pages.length(grown, pages - 1, PAGE_SHIFT));
+            owners[pages - 1] = epoch;
+        }
+        for (int page = pages; page < grownPages; page++) {
+            sums[page] = new double[Pages.length(grown, page, PAGE_SHIFT)];
+            counts[page] = new int[Pages.length(grown, page, PAGE_SHIFT)];
+            owners[page] = epoch;
+        }
+    }
+
+    static int index(int hi, int lo) {
+        return (int) ((long) hi * (hi - 1) / 2) + lo;
+    }
+
+    static int slots(int items) {
+        return (int) ((long) items * (items - 1) / 2);
+    }
+
+    private static void checkSize(int items) {
+        if (items < 0 || items > MAX_ITEMS) {
+            throw new IllegalArgumentException("Dense pair matrix supports up to " + MAX_ITEMS + " items, got " + items);
+        }
+    }
+}
@@ -2,11 +2,11 @@ package org.main;
 
 import lombok.*;
 
-@Setter
 @Getter
-@NoArgsConstructor
 @AllArgsConstructor
 @ToString
-public class User {
-    private String username;
-}
\ No newline at end of file
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
+public final class User {
+    @NonNull
+    private final String username;
+}
@@ -0,0 +1,129 @@
+package org.main;
+
+import java.util.Arrays;
+
+/**
+ * Ratings of a single user kept as parallel primitive arrays of item ids and rating values
+ */
+public class UserRatings {
+    private int[] ids;
+    private double[] ratings;
+    private int size;
+    /**
+     * Epoch of the model that may change these ratings in place, any other model copies them first
+     */
+    int owner;
+
+    /**
+     * Constructs an empty rating list
+     */
+    public UserRatings() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty rating list
+     * @param capacity number of ratings to reserve space for
+     */
+    public UserRatings(int capacity) {
+        this.ids = new int[Math.max(1, capacity)];
+        this.ratings = new double[Math.max(1, capacity)];
+    }
+
+    private UserRatings(UserRatings other) {
+        this.ids = Arrays.copyOf(other.ids, other.size);
+        this.ratings = Arrays.copyOf(other.ratings, other.size);
+        this.size = other.size;
+    }
+
+    /**
+     * @param id item id
+     * @return position of the item or {@code -1} if the user has not rated it
+     */
+    public int indexOf(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Append a rating, the caller makes sure the item is not rated yet
+     * @param id item id
+     * @param rating rating value
+     */
+    public void add(int id, double rating) {
+        if (size == ids.length) {
+            int grown = Math.max(8, size << 1);
+            ids = Arrays.copyOf(ids, grown);
+            ratings = Arrays.copyOf(ratings, grown);
+        }
+        ids[size] = id;
+        ratings[size++] = rating;
+    }
+
+    /**
+     * Replace the rating at a position
+     * @param index position returned by {@link #indexOf(int)}
+     * @param rating new rating value
+     */
+    public void set(int index, double rating) {
+        ratings[index] = rating;
+    }
+
+    /**
+     * Remove the rating at a position, the last rating takes its place
+     * @param index position returned by {@link #indexOf(int)}
+     */
+    public void remove(int index) {
+        size--;
+        ids[index] = ids[size];
+        ratings[index] = ratings[size];
+    }
+
+    /**
+     * @param index position
+     * @return item id at the position
+     */
+    public int id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index position
+     * @return rating at the position
+     */
+    public double rating(int index) {
+        return ratings[index];
+    }
+
+    /**
+     * @return backing item id array, only the first {@link #size()} entries are used
+     */
+    public int[] ids() {
+        return ids;
+    }
+
+    /**
+     * @return backing rating array, only the first {@link #size()} entries are used
+     */
+    public double[] ratings() {
+        return ratings;
+    }
+
+    /**
+     * @return number of ratings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return independent, trimmed copy of these ratings
+     */
+    public UserRatings copy() {
+        return new UserRatings(this);
+    }
+}
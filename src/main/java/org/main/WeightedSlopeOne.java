@@ -0,0 +1,41 @@
+package org.main;
+
+import lombok.*;
+
+/**
+ * Weighted Slope One: every pair contributes its average difference, weighted by the number of
+ * users that rated both items. Pairs with less than {@code minSupport} users are ignored.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class WeightedSlopeOne implements SlopeOneScheme {
+
+    /**
+     * Smallest number of co-rating users a pair needs to be used {@code default = 1}
+     */
+    private final int minSupport;
+
+    /**
+     * Constructs the scheme without a support threshold
+     */
+    public WeightedSlopeOne() {
+        this(1);
+    }
+
+    @Override
+    public void score(SlopeOneModel model, int[] ids, double[] ratings, int n, ScoreSink sink) {
+        PairMatrix pairs = model.getPairs();
+        int threshold = Math.max(1, minSupport);
+        for (int a = 0; a < n; a++) {
+            int j = ids[a];
+            double rating = ratings[a];
+            for (int d = pairs.degree(j) - 1; d >= 0; d--) {
+                int count = pairs.neighborCount(j, d);
+                if (count >= threshold) {
+                    sink.add(pairs.neighbor(j, d), pairs.neighborSum(j, d) + rating * count, count);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.metrics;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prints every metric, counters with their rate per second since the previous report
+ */
+public class ConsoleReporter implements MetricsReporter {
+    private final PrintStream out;
+    private final Map<String, Long> previousCounts = new HashMap<>();
+    private long previousTime;
+
+    /**
+     * Constructs a reporter printing to {@link System#out}
+     */
+    public ConsoleReporter() {
+        this(System.out);
+    }
+
+    /**
+     * @param out stream to print to
+     */
+    public ConsoleReporter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void report(MetricsSnapshot snapshot) {
+        double seconds = previousTime == 0 ? 0.0 : (snapshot.getNanoTime() - previousTime) / 1e9;
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> counter : snapshot.getCounters().entrySet()) {
+            long delta = counter.getValue() - previousCounts.getOrDefault(counter.getKey(), 0L);
+            text.append(String.format("%-40s %14d", counter.getKey(), counter.getValue()));
+            if (seconds > 0) {
+                text.append(String.format("  %12.1f/s", delta / seconds));
+            }
+            text.append('\n');
+            previousCounts.put(counter.getKey(), counter.getValue());
+        }
+        for (Map.Entry<String, Long> gauge : snapshot.getGauges().entrySet()) {
+            text.append(String.format("%-40s %14d%n", gauge.getKey(), gauge.getValue()));
+        }
+        for (Map.Entry<String, HistogramSnapshot> histogram : snapshot.getHistograms().entrySet()) {
+            HistogramSnapshot h = histogram.getValue();
+            text.append(String.format("%-40s count=%d mean=%.0f p50=%d p90=%d p99=%d p999=%d max=%d%n",
+                    histogram.getKey(), h.getCount(), h.getMean(), h.getP50(), h.getP90(), h.getP99(),
+                    h.getP999(), h.getMax()));
+        }
+        previousTime = snapshot.getNanoTime();
+        out.print(text);
+    }
+}
@@ -0,0 +1,36 @@
+package org.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter, striped so concurrent increments do not contend
+ */
+public class Counter {
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Add one, unless metrics are disabled
+     */
+    public void increment() {
+        if (Metrics.isEnabled()) {
+            value.increment();
+        }
+    }
+
+    /**
+     * Add to the counter, unless metrics are disabled
+     * @param amount amount to add
+     */
+    public void add(long amount) {
+        if (Metrics.isEnabled()) {
+            value.add(amount);
+        }
+    }
+
+    /**
+     * @return current value
+     */
+    public long count() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,99 @@
+package org.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values, usually latencies in nanoseconds. Values are counted in
+ * log-linear buckets like HdrHistogram: every power of two is split into {@value #SUB_BUCKETS}
+ * linear buckets, so reported percentiles are within about 3% of the recorded values over the whole
+ * {@code long} range, with a fixed footprint of 15 KiB and no allocation when recording.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value, unless metrics are disabled
+     * @param value value to record, negative values are recorded as {@code 0}
+     */
+    public void record(long value) {
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        value = Math.max(0, value);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Record the time elapsed since {@link Metrics#start()}
+     * @param start value returned by {@link Metrics#start()}
+     */
+    public void recordSince(long start) {
+        if (start != Metrics.DISABLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return count, mean, maximum and percentiles of the recorded values
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long recorded = count.sum();
+        long maximum = max.get();
+        return new HistogramSnapshot(total, recorded == 0 ? 0.0 : (double) sum.sum() / recorded, maximum,
+                Math.min(maximum, percentile(counts, total, 0.50)), Math.min(maximum, percentile(counts, total, 0.90)),
+                Math.min(maximum, percentile(counts, total, 0.99)), Math.min(maximum, percentile(counts, total, 0.999)));
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(counts.length - 1);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (magnitude - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << (magnitude - SUB_BITS);
+        return lowest + (1L << (magnitude - SUB_BITS)) - 1;
+    }
+}
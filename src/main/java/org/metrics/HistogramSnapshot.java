@@ -0,0 +1,22 @@
+package org.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Summary of a {@link Histogram} at one point in time, percentiles are bucket upper bounds capped at
+ * the maximum
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class HistogramSnapshot {
+    private final long count;
+    private final double mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+}
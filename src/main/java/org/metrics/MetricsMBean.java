@@ -0,0 +1,132 @@
+package org.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.MBeanException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-only view of a {@link MetricsRegistry} for JMX. Counters and gauges are {@code long} attributes
+ * named like the metric, every histogram is exposed as {@code <name>.count}, {@code .mean}, {@code .max},
+ * {@code .p50}, {@code .p90}, {@code .p99} and {@code .p999}. Attributes are computed from a fresh
+ * snapshot, so metrics created after registration show up as well.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String[] PERCENTILES = {"count", "mean", "max", "p50", "p90", "p99", "p999"};
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = value(registry.snapshot(), attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        MetricsSnapshot snapshot = registry.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Object value = value(snapshot, attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        if ("setEnabled".equals(actionName) && params != null && params.length == 1
+                && params[0] instanceof Boolean) {
+            Metrics.setEnabled((Boolean) params[0]);
+            return null;
+        }
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MetricsSnapshot snapshot = registry.snapshot();
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : snapshot.getCounters().keySet()) {
+            attributes.add(attribute(name, "long", "Counter"));
+        }
+        for (String name : snapshot.getGauges().keySet()) {
+            attributes.add(attribute(name, "long", "Gauge"));
+        }
+        for (String name : snapshot.getHistograms().keySet()) {
+            for (String field : PERCENTILES) {
+                attributes.add(attribute(name + "." + field, "mean".equals(field) ? "double" : "long",
+                        "Histogram " + field));
+            }
+        }
+        MBeanOperationInfo setEnabled = new MBeanOperationInfo("setEnabled", "Turn recording on or off",
+                new MBeanParameterInfo[]{new MBeanParameterInfo("enabled", "boolean", "Record values")},
+                "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Training and prediction metrics",
+                attributes.toArray(new MBeanAttributeInfo[0]), null,
+                new MBeanOperationInfo[]{setEnabled}, null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String type, String description) {
+        return new MBeanAttributeInfo(name, type, description, true, false, false);
+    }
+
+    private static Object value(MetricsSnapshot snapshot, String attribute) {
+        Long plain = snapshot.getCounters().get(attribute);
+        if (plain == null) {
+            plain = snapshot.getGauges().get(attribute);
+        }
+        if (plain != null) {
+            return plain;
+        }
+        int dot = attribute.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        HistogramSnapshot histogram = snapshot.getHistograms().get(attribute.substring(0, dot));
+        Function<HistogramSnapshot, Object> field = field(attribute.substring(dot + 1));
+        return histogram == null || field == null ? null : field.apply(histogram);
+    }
+
+    private static Function<HistogramSnapshot, Object> field(String name) {
+        switch (name) {
+            case "count": return HistogramSnapshot::getCount;
+            case "mean": return HistogramSnapshot::getMean;
+            case "max": return HistogramSnapshot::getMax;
+            case "p50": return HistogramSnapshot::getP50;
+            case "p90": return HistogramSnapshot::getP90;
+            case "p99": return HistogramSnapshot::getP99;
+            case "p999": return HistogramSnapshot::getP999;
+            default: return null;
+        }
+    }
+}
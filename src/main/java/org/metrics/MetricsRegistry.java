@@ -0,0 +1,76 @@
+package org.metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and histograms. Metrics are created on first use and live as long as the
+ * registry, hot paths should look them up once and keep the reference.
+ */
+public class MetricsRegistry {
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @param name metric name
+     * @return counter with this name, created if missing
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * @param name metric name
+     * @return histogram with this name, created if missing
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Register a value read when a snapshot is taken, replacing any gauge with the same name
+     * @param name metric name
+     * @param value supplier of the current value, it must be cheap and thread safe
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return current value of every metric
+     */
+    public MetricsSnapshot snapshot() {
+        SortedMap<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.count()));
+        SortedMap<String, Long> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+        SortedMap<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new MetricsSnapshot(System.nanoTime(), counterValues, gaugeValues, histogramValues);
+    }
+
+    /**
+     * Send a snapshot to a reporter at a fixed rate from a daemon thread
+     * @param reporter receiver of the snapshots
+     * @param period time between two reports
+     * @return scheduler running the reports, shut it down to stop reporting
+     */
+    public ScheduledExecutorService startReporting(MetricsReporter reporter, Duration period) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long nanos = period.toNanos();
+        scheduler.scheduleAtFixedRate(() -> reporter.report(snapshot()), nanos, nanos, TimeUnit.NANOSECONDS);
+        return scheduler;
+    }
+}
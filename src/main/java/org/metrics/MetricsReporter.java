@@ -0,0 +1,13 @@
+package org.metrics;
+
+/**
+ * Receives metric snapshots, see {@link MetricsRegistry#startReporting(MetricsReporter, java.time.Duration)}
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+    /**
+     * @param snapshot values of every metric
+     */
+    void report(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,22 @@
+package org.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.SortedMap;
+
+/**
+ * Values of every metric of a {@link MetricsRegistry} at one point in time, sorted by name
+ */
+@Getter
+@AllArgsConstructor
+public class MetricsSnapshot {
+
+    /**
+     * {@link System#nanoTime()} when the snapshot was taken
+     */
+    private final long nanoTime;
+    private final SortedMap<String, Long> counters;
+    private final SortedMap<String, Long> gauges;
+    private final SortedMap<String, HistogramSnapshot> histograms;
+}
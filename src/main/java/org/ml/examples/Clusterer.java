@@ -3,18 +3,36 @@ package org.ml.examples;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
+import org.data.preprocessing.NumericTableReader;
 import org.jetbrains.annotations.NotNull;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
 import weka.clusterers.SimpleKMeans;
 import weka.core.Instance;
 import weka.core.Instances;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import weka.core.converters.ArffLoader;
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
-import java.util.HashMap;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -24,6 +42,7 @@ import org.jfree.data.xy.XYDataset;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 import javax.swing.JFrame;
+import java.awt.GraphicsEnvironment;
 
 @Setter
 @Getter
@@ -45,6 +64,17 @@ public class Clusterer {
      */
     int numClusters;
 
+    /**
+     * Number of K values evaluated concurrently {@code default = available processors}
+     */
+    int parallelism;
+
+    /**
+     * Number of K values past the elbow that have to confirm it before the sweep stops early,
+     * {@code 0} evaluates every K {@code default = 0}
+     */
+    int earlyStopPatience;
+
     /**
      * Constructs a new Clusterer with default values
      */
@@ -52,58 +82,167 @@ public class Clusterer {
         this.seed = 10;
         this.preserveInstancesOrder = true;
         this.numClusters = 3;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.earlyStopPatience = 0;
     }
 
     /**
-     * Clusterize data in chosen amount of clusters
+     * Clusterize data in chosen amount of clusters. The whole file is streamed through
+     * {@link MiniBatchKMeans}, the elbow plot is drawn for a uniform sample of at most 10,000 rows.
+     * In a headless JVM ({@code -Djava.awt.headless=true}) the distortions are only printed.
      * @throws Exception If provided path does not meet {@link java.net.URI} requirements or provided wrong K value
      */
     public void Clusterize() throws Exception {
-        Instances data = getData("/data_sample.arff");
-        System.out.println(data.numInstances() + " Number of instances");
-        Instances dataTrim = new Instances(data, 1000);
-        for (int i = 0; i < 10000; i++) {
-            dataTrim.add(data.get(i));
-        }
-        findOptimalK(dataTrim, 20, true);
+        Path path = getPath("/data_sample.arff");
+        MiniBatchKMeans kMeans = new MiniBatchKMeans();
+        kMeans.setSeed(this.seed);
+        kMeans.setNumClusters(this.numClusters);
+        kMeans.fit(path);
+        System.out.println(kMeans.getCentroids());
+        System.out.println("Distortion: " + kMeans.distortion(path));
+
+        Instances sample = sample(path, 10000);
+        System.out.println(sample.numInstances() + " Number of sampled instances");
+        findOptimalK(sample, 20, !GraphicsEnvironment.isHeadless());
     }
 
     /**
-     * Finds and displays optimal K value for KMeans clusterization method using distortion elbow method
+     * Fit KMeans with the configured number of clusters. Instance order is always preserved, so
+     * {@link SimpleKMeans#getAssignments()} lists the cluster of every row.
      * @param data data to clusterize
-     * @param lengthK amount of K values to check
-     * @param visualize results visualization
+     * @return fitted model
      * @throws Exception If wrong K value is provided
      */
-    private void findOptimalK(Instances data, int lengthK, boolean visualize) throws Exception {
+    public SimpleKMeans buildClusterer(Instances data) throws Exception {
+        TracedKMeans kMeans = new TracedKMeans();
+        kMeans.setSeed(this.seed);
+        kMeans.setPreserveInstancesOrder(true);
+        kMeans.setNumClusters(this.numClusters);
+        kMeans.build(data);
+        return kMeans;
+    }
 
-        HashMap<Integer, Double> distortions = new HashMap<>();
+    /**
+     * Draw a uniform sample of rows from an ARFF file. Files that take up less than a quarter of the
+     * heap are loaded with {@link #getData(Path)}, larger ones are streamed through {@link ArffLoader}
+     * without loading the whole file. Both ways pick the same rows for the same seed.
+     * @param arff ARFF file
+     * @param size maximum number of rows, all rows are kept if the file has less
+     * @return sampled rows in file order
+     * @throws IOException If the file can not be read or is not a valid ARFF file
+     */
+    public Instances sample(@NotNull Path arff, int size) throws IOException {
+        if (Files.size(arff) > Runtime.getRuntime().maxMemory() / 4) {
+            return streamSample(arff, size);
+        }
+        Instances data = getData(arff);
+        long[] positions = reservoir(data.numInstances(), size);
+        Instances sample = new Instances(data, positions.length);
+        for (long position : positions) {
+            sample.add(data.instance((int) position));
+        }
+        return sample;
+    }
 
-        for (int k = 1; k < lengthK; k++) {
-            // Building and fitting the model
-            SimpleKMeans kMeans = new SimpleKMeans();
-            kMeans.setSeed(this.seed);
-            kMeans.setPreserveInstancesOrder(this.preserveInstancesOrder);
-            kMeans.setNumClusters(k);
-            kMeans.buildClusterer(data);
+    /**
+     * Reservoir sample of row positions, drawing the same random numbers as {@link #streamSample(Path, int)}
+     * @param rows number of rows
+     * @param size maximum number of rows to keep
+     * @return kept positions in ascending order
+     */
+    private long[] reservoir(long rows, int size) {
+        long[] positions = new long[(int) Math.min(rows, size)];
+        Random random = new Random(this.seed);
+        for (long seen = 0; seen < rows; seen++) {
+            long slot = seen < size ? seen : (long) (random.nextDouble() * (seen + 1));
+            if (slot < size) {
+                positions[(int) slot] = seen;
+            }
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
 
-            double distortion = 0.0;
-            for (int i = 0; i < data.numInstances(); i++) {
-                distortion += minEuclideanDistance(data.get(i), kMeans.getClusterCentroids());
+    private Instances streamSample(@NotNull Path arff, int size) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(arff), 1 << 16)) {
+            ArffLoader loader = new ArffLoader();
+            loader.setSource(input);
+            Instances structure = loader.getStructure();
+            Instance[] reservoir = new Instance[size];
+            long[] positions = new long[size];
+            Random random = new Random(this.seed);
+            long seen = 0;
+            Instance instance;
+            while ((instance = loader.getNextInstance(structure)) != null) {
+                long slot = seen < size ? seen : (long) (random.nextDouble() * (seen + 1));
+                if (slot < size) {
+                    reservoir[(int) slot] = instance;
+                    positions[(int) slot] = seen;
+                }
+                seen++;
+            }
+            int kept = (int) Math.min(seen, size);
+            Integer[] order = new Integer[kept];
+            for (int i = 0; i < kept; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> positions[i]));
+            Instances sample = new Instances(structure, kept);
+            for (Integer i : order) {
+                sample.add(reservoir[i]);
             }
-            distortion /= data.numInstances();
+            return sample;
+        }
+    }
 
-            distortions.put(k, distortion);
+    /**
+     * Finds and displays optimal K value for KMeans clusterization method using distortion elbow method.
+     * K values are evaluated concurrently in ascending order, at most {@link #parallelism} at a time.
+     * With {@link #earlyStopPatience} set no further K is started once the elbow is confirmed.
+     * @param data data to clusterize
+     * @param lengthK amount of K values to check
+     * @param visualize results visualization
+     * @return distortion of every checked K value, ordered by K
+     * @throws Exception If wrong K value is provided
+     */
+    public NavigableMap<Integer, Double> findOptimalK(Instances data, int lengthK, boolean visualize) throws Exception {
+
+        NavigableMap<Integer, Double> distortions = new TreeMap<>();
+        int threads = Math.max(1, Math.min(this.parallelism, lengthK - 1));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CompletionService<Map.Entry<Integer, Double>> completion = new ExecutorCompletionService<>(executor);
+            Distortion distortion = new Distortion(data);
+            int next = 1;
+            int running = 0;
+            while (next < lengthK && running < threads) {
+                submitDistortion(completion, data, distortion, next++);
+                running++;
+            }
+            while (running > 0) {
+                Map.Entry<Integer, Double> result = completion.take().get();
+                running--;
+                distortions.put(result.getKey(), result.getValue());
+                if (next < lengthK && !elbowConfirmed(distortions)) {
+                    submitDistortion(completion, data, distortion, next++);
+                    running++;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            executor.shutdownNow();
         }
 
         for (Map.Entry<Integer, Double> entry : distortions.entrySet()) {
             System.out.println(entry.getKey() + " : " + entry.getValue());
         }
+        System.out.println("Elbow at K = " + elbow(distortions));
 
         if (visualize) {
             XYSeries series = new XYSeries("Distortion");
-            for (int k = 1; k < lengthK; k++) {
-                series.add(k, distortions.get(k));
+            for (Map.Entry<Integer, Double> entry : distortions.entrySet()) {
+                series.add(entry.getKey(), entry.getValue());
             }
             XYDataset dataset = new XYSeriesCollection(series);
 
@@ -125,44 +264,130 @@ public class Clusterer {
             frame.pack();
             frame.setVisible(true);
         }
+        return distortions;
     }
 
     /**
-     * Minimum distance between instance and a list of instances
-     * @param point instance
-     * @param centers list of instances
-     * @return minimum distance
+     * Find the elbow of a distortion curve, the K with the largest curvature
+     * {@code d(k - 1) - 2 d(k) + d(k + 1)}
+     * @param distortions distortion of consecutive K values
+     * @return K at the elbow or {@code -1} if less than three K values are known
      */
-    private double minEuclideanDistance(Instance point, @NotNull Instances centers) {
-        double minDistance = Double.MAX_VALUE;
-        for (Instance center : centers) {
-            double distance = 0.0;
-            for (int i = 0; i < point.numValues(); i++) {
-                distance += Math.pow(point.value(i) - center.value(i), 2);
-            }
-            distance = Math.sqrt(distance);
-            if (distance < minDistance) {
-                minDistance = distance;
+    public static int elbow(SortedMap<Integer, Double> distortions) {
+        if (distortions.size() < 3) {
+            return -1;
+        }
+        int elbow = -1;
+        double maxCurvature = Double.NEGATIVE_INFINITY;
+        Iterator<Map.Entry<Integer, Double>> entries = distortions.entrySet().iterator();
+        double previous = entries.next().getValue();
+        Map.Entry<Integer, Double> current = entries.next();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, Double> following = entries.next();
+            double curvature = previous - 2 * current.getValue() + following.getValue();
+            if (curvature > maxCurvature) {
+                maxCurvature = curvature;
+                elbow = current.getKey();
             }
+            previous = current.getValue();
+            current = following;
         }
-        return minDistance;
+        return elbow;
     }
 
+    /**
+     * Check if the elbow of the gap-free prefix {@code 1..m} of evaluated K values is followed by
+     * {@link #earlyStopPatience} lower curvatures
+     * @param distortions distortions evaluated so far, completed out of order
+     * @return {@code true} if no larger K has to be evaluated
+     */
+    private boolean elbowConfirmed(NavigableMap<Integer, Double> distortions) {
+        if (this.earlyStopPatience <= 0) {
+            return false;
+        }
+        int last = 0;
+        while (distortions.containsKey(last + 1)) {
+            last++;
+        }
+        int elbow = elbow(distortions.headMap(last, true));
+        return elbow > 0 && last - 1 - elbow >= this.earlyStopPatience;
+    }
 
     /**
-     * Get data in correct format for Weka
-     * @param filename path to file
+     * Train KMeans with K clusters in the background and measure its mean distance to the closest centroid
+     * @param completion service collecting the result
+     * @param data data to clusterize
+     * @param distortion copy of the data used for scoring
+     * @param k number of clusters
+     */
+    private void submitDistortion(CompletionService<Map.Entry<Integer, Double>> completion, Instances data,
+                                  Distortion distortion, int k) {
+        completion.submit(() -> {
+            // Building and fitting the model on a private copy of the instance list
+            TracedKMeans kMeans = new TracedKMeans();
+            kMeans.setSeed(this.seed);
+            kMeans.setPreserveInstancesOrder(this.preserveInstancesOrder);
+            kMeans.setNumClusters(k);
+            kMeans.build(new Instances(data));
+            long start = Metrics.start();
+            double mean = distortion.mean(kMeans.getClusterCentroids());
+            TracedKMeans.DISTORTION_NANOS.recordSince(start);
+            return Map.entry(k, mean);
+        });
+    }
+
+    /**
+     * Load a numeric ARFF or CSV file with the parallel {@link NumericTableReader}, used by
+     * {@link #sample(Path, int)} for the elbow method
+     * @param path file to load
      * @return data in Instances format
-     * @throws IOException If provided path is wrong or does not exist
+     * @throws IOException If the file can not be read or contains non numeric data
+     */
+    public Instances getData(Path path) throws IOException {
+        NumericTableReader reader = new NumericTableReader();
+        reader.setParallelism(this.parallelism);
+        return reader.read(path).toInstances();
+    }
+
+    /**
+     * Locate a bundled data file. Resources inside a jar are copied to a temporary file first, so
+     * they can be read more than once.
+     * @param filename path to file
+     * @return path of the file
+     * @throws IOException If the resource does not exist or can not be copied
      * @throws URISyntaxException If provided path does not meet {@link java.net.URI} requirements
      */
     @NotNull
-    private Instances getData(String filename) throws IOException, URISyntaxException {
-        File file = new File(Objects.requireNonNull(Clusterer.class.getResource(filename)).toURI());
-        BufferedReader inputReader = new BufferedReader(new FileReader(file));
-        Instances instances = new Instances(inputReader);
-        inputReader.close();
-        return instances;
+    private Path getPath(String filename) throws IOException, URISyntaxException {
+        URL resource = Clusterer.class.getResource(filename);
+        if (resource == null) {
+            throw new FileNotFoundException("Resource not found: " + filename);
+        }
+        if ("file".equals(resource.getProtocol())) {
+            return Path.of(resource.toURI());
+        }
+        Path copy = Files.createTempFile("clusterer", Path.of(filename).getFileName().toString());
+        copy.toFile().deleteOnExit();
+        try (InputStream input = resource.openStream()) {
+            Files.copy(input, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
     }
 
+
+    /**
+     * SimpleKMeans recording its build time and number of Lloyd iterations in {@link Metrics#registry()}
+     */
+    private static class TracedKMeans extends SimpleKMeans {
+        private static final Histogram BUILD_NANOS = Metrics.registry().histogram("kmeans.build.nanos");
+        private static final Histogram ITERATIONS = Metrics.registry().histogram("kmeans.iterations");
+        private static final Histogram DISTORTION_NANOS = Metrics.registry().histogram("kmeans.distortion.nanos");
+
+        private void build(Instances data) throws Exception {
+            long start = Metrics.start();
+            buildClusterer(data);
+            BUILD_NANOS.recordSince(start);
+            ITERATIONS.record(m_Iterations);
+        }
+    }
 }
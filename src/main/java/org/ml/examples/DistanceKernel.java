@@ -0,0 +1,18 @@
+package org.ml.examples;
+
+/**
+ * Squared distance of a point to the closest of {@code k} centers, lets {@link Distortion} use the
+ * SIMD kernel of the {@code vector} profile without linking against the Vector API
+ */
+interface DistanceKernel {
+
+    /**
+     * @param point row-major points
+     * @param offset first coordinate of the point
+     * @param centers row-major centers
+     * @param k number of centers
+     * @param length number of coordinates
+     * @return smallest squared distance
+     */
+    double minSquared(double[] point, int offset, double[] centers, int k, int length);
+}
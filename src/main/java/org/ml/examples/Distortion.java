@@ -0,0 +1,166 @@
+package org.ml.examples;
+
+import org.jetbrains.annotations.NotNull;
+import weka.core.Instances;
+
+import java.util.stream.IntStream;
+
+/**
+ * Mean distance of every point to its closest centroid, the distortion of the elbow method.
+ * Points and centroids are copied once into row-major {@code double[]} buffers. Squared distances
+ * are compared and only the minimum of each point is square rooted. Points are scored in fixed
+ * blocks on the common fork join pool and the block sums are added in order, so the result does
+ * not depend on the number of cores.
+ * <p>
+ * The squared distance is computed with SIMD lanes when the build includes the {@code vector} profile
+ * and the {@code jdk.incubator.vector} module is loaded ({@code --add-modules jdk.incubator.vector}),
+ * otherwise with a scalar loop that keeps the same {@value #LANES} partial sums, so both paths give
+ * bit-identical results. The SIMD kernel is looked up reflectively, so the regular build never
+ * compiles against the incubating module.
+ */
+public final class Distortion {
+
+    /**
+     * Number of partial sums of a squared distance, the lane count of a 256 bit double vector
+     */
+    static final int LANES = 4;
+
+    private static final int BLOCK_ROWS = 2048;
+    private static final DistanceKernel VECTOR_KERNEL = vectorKernel();
+    private static final boolean VECTOR_API = VECTOR_KERNEL != null;
+
+    private final double[] points;
+    private final int rows;
+    private final int dimensions;
+
+    /**
+     * Copy the points of a dataset
+     * @param data points, every attribute is used as a coordinate
+     */
+    public Distortion(@NotNull Instances data) {
+        this.rows = data.numInstances();
+        this.dimensions = data.numAttributes();
+        this.points = toRows(data);
+    }
+
+    /**
+     * @return {@code true} if the SIMD kernel was built and the Vector API is available to this JVM
+     */
+    public static boolean isVectorized() {
+        return VECTOR_API;
+    }
+
+    /**
+     * Mean distance to the closest centroid, vectorized whenever possible
+     * @param centroids cluster centers with the same attributes as the points
+     * @return distortion
+     */
+    public double mean(@NotNull Instances centroids) {
+        return mean(centroids, VECTOR_API);
+    }
+
+    /**
+     * Mean distance to the closest centroid
+     * @param centroids cluster centers with the same attributes as the points
+     * @param vectorized {@code true} to use SIMD lanes
+     * @return distortion
+     * @throws IllegalStateException If SIMD lanes are requested without the Vector API
+     */
+    public double mean(@NotNull Instances centroids, boolean vectorized) {
+        if (vectorized && !VECTOR_API) {
+            throw new IllegalStateException("Vector API is not available, build with -P vector and run with "
+                    + "--add-modules jdk.incubator.vector");
+        }
+        if (centroids.numAttributes() != dimensions) {
+            throw new IllegalArgumentException("Centroids have " + centroids.numAttributes()
+                    + " attributes, points have " + dimensions);
+        }
+        double[] centers = toRows(centroids);
+        int k = centroids.numInstances();
+        int blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        double[] sums = IntStream.range(0, blocks).parallel()
+                .mapToDouble(block -> blockSum(block, centers, k, vectorized))
+                .toArray();
+        double distortion = 0.0;
+        for (double sum : sums) {
+            distortion += sum;
+        }
+        return distortion / rows;
+    }
+
+    private double blockSum(int block, double[] centers, int k, boolean vectorized) {
+        int end = Math.min(rows, (block + 1) * BLOCK_ROWS);
+        double sum = 0.0;
+        for (int row = block * BLOCK_ROWS; row < end; row++) {
+            double min = vectorized
+                    ? VECTOR_KERNEL.minSquared(points, row * dimensions, centers, k, dimensions)
+                    : minSquared(points, row * dimensions, centers, k, dimensions);
+            sum += Math.sqrt(min);
+        }
+        return sum;
+    }
+
+    /**
+     * Scalar squared distance to the closest center, with the lane layout of the SIMD kernel
+     */
+    static double minSquared(double[] point, int offset, double[] centers, int k, int length) {
+        double min = Double.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            double distance = squared(point, offset, centers, c * length, length);
+            if (distance < min) {
+                min = distance;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return SIMD kernel or {@code null} if it was not built or the Vector API module is not loaded
+     */
+    private static DistanceKernel vectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (DistanceKernel) Class.forName("org.ml.examples.VectorDistance").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scalar squared distance between two rows, accumulated in {@value #LANES} partial sums
+     */
+    static double squared(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double lane0 = 0.0;
+        double lane1 = 0.0;
+        double lane2 = 0.0;
+        double lane3 = 0.0;
+        int i = 0;
+        for (int bound = length - length % LANES; i < bound; i += LANES) {
+            double d0 = a[aOffset + i] - b[bOffset + i];
+            double d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            double d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            double d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            lane0 += d0 * d0;
+            lane1 += d1 * d1;
+            lane2 += d2 * d2;
+            lane3 += d3 * d3;
+        }
+        double sum = lane0 + lane1 + lane2 + lane3;
+        for (; i < length; i++) {
+            double d = a[aOffset + i] - b[bOffset + i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    private static double[] toRows(Instances data) {
+        int width = data.numAttributes();
+        double[] rows = new double[data.numInstances() * width];
+        for (int r = 0; r < data.numInstances(); r++) {
+            System.arraycopy(data.get(r).toDoubleArray(), 0, rows, r * width, width);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,275 @@
+package org.ml.examples;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+import org.metrics.Counter;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Mini-batch K-means for ARFF files larger than memory. Rows are streamed through Weka's incremental
+ * {@link ArffLoader}, only one batch of {@link #batchSize} rows and the centroids are held in memory.
+ * Every centroid moves towards each row assigned to it with a learning rate of one over the number
+ * of rows it has been assigned so far. Centroids are seeded with k-means++ on the first batch.
+ * Rows with missing values are skipped.
+ */
+@Setter
+@Getter
+public class MiniBatchKMeans {
+    private static final Histogram BATCH_NANOS = Metrics.registry().histogram("kmeans.minibatch.batch.nanos");
+    private static final Counter ROWS = Metrics.registry().counter("kmeans.minibatch.rows");
+
+    /**
+     * Random numbers seed to keep the results consistent {@code default = 10}
+     */
+    int seed;
+
+    /**
+     * Choose number of clusters {@code default = 3}
+     */
+    int numClusters;
+
+    /**
+     * Rows assigned before centroids are updated {@code default = 1024}
+     */
+    int batchSize;
+
+    /**
+     * Passes over the file {@code default = 1}
+     */
+    int passes;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Instances structure;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private double[] centers;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long[] assigned;
+
+    /**
+     * Rows skipped because of missing values during the last {@link #fit(Path)}
+     */
+    @Setter(AccessLevel.NONE)
+    private long skippedRows;
+
+    /**
+     * Constructs a new MiniBatchKMeans with default values
+     */
+    public MiniBatchKMeans() {
+        this.seed = 10;
+        this.numClusters = 3;
+        this.batchSize = 1024;
+        this.passes = 1;
+    }
+
+    /**
+     * Cluster an ARFF file, every attribute is used as a coordinate
+     * @param arff ARFF file, read {@link #passes} times
+     * @throws IOException If the file can not be read or is not a valid ARFF file
+     * @throws IllegalArgumentException If the file has less complete rows than clusters
+     */
+    public void fit(@NotNull Path arff) throws IOException {
+        this.centers = null;
+        this.skippedRows = 0;
+        Random random = new Random(this.seed);
+        for (int pass = 0; pass < this.passes; pass++) {
+            try (Rows rows = new Rows(arff)) {
+                if (pass == 0) {
+                    this.structure = rows.structure;
+                }
+                int dimensions = rows.structure.numAttributes();
+                double[] batch = new double[this.batchSize * dimensions];
+                int size;
+                while ((size = rows.next(batch, this.batchSize)) > 0) {
+                    long start = Metrics.start();
+                    if (this.centers == null) {
+                        seed(batch, size, dimensions, random);
+                    }
+                    update(batch, size, dimensions);
+                    BATCH_NANOS.recordSince(start);
+                    ROWS.add(size);
+                }
+                if (pass == 0) {
+                    this.skippedRows = rows.skipped;
+                }
+            }
+            if (this.centers == null) {
+                throw new IllegalArgumentException("No complete rows to cluster in " + arff);
+            }
+        }
+    }
+
+    /**
+     * Mean distance of the rows of a file to their closest centroid, streamed like {@link #fit(Path)}
+     * @param arff ARFF file with the attributes the model was fitted on
+     * @return distortion
+     * @throws IOException If the file can not be read or is not a valid ARFF file
+     */
+    public double distortion(@NotNull Path arff) throws IOException {
+        checkFitted();
+        int dimensions = this.structure.numAttributes();
+        double distortion = 0.0;
+        long count = 0;
+        try (Rows rows = new Rows(arff)) {
+            double[] batch = new double[this.batchSize * dimensions];
+            int size;
+            while ((size = rows.next(batch, this.batchSize)) > 0) {
+                for (int row = 0; row < size; row++) {
+                    distortion += Math.sqrt(Distortion.minSquared(batch, row * dimensions, this.centers,
+                            this.numClusters, dimensions));
+                }
+                count += size;
+            }
+        }
+        return count == 0 ? 0.0 : distortion / count;
+    }
+
+    /**
+     * @param instance row with the attributes the model was fitted on
+     * @return index of the closest centroid
+     */
+    public int clusterInstance(@NotNull Instance instance) {
+        checkFitted();
+        return nearest(instance.toDoubleArray(), 0, this.structure.numAttributes());
+    }
+
+    /**
+     * @return centroids with the attributes of the clustered file
+     */
+    public Instances getCentroids() {
+        checkFitted();
+        int dimensions = this.structure.numAttributes();
+        Instances centroids = new Instances(this.structure, this.numClusters);
+        for (int c = 0; c < this.numClusters; c++) {
+            double[] values = new double[dimensions];
+            System.arraycopy(this.centers, c * dimensions, values, 0, dimensions);
+            centroids.add(new DenseInstance(1.0, values));
+        }
+        return centroids;
+    }
+
+    /**
+     * k-means++ seeding: the first center is a random row, every next one a row drawn with probability
+     * proportional to its squared distance to the closest chosen center
+     */
+    private void seed(double[] batch, int size, int dimensions, Random random) {
+        if (size < this.numClusters) {
+            throw new IllegalArgumentException("First batch has " + size + " complete rows, "
+                    + this.numClusters + " clusters need at least as many");
+        }
+        this.centers = new double[this.numClusters * dimensions];
+        this.assigned = new long[this.numClusters];
+        System.arraycopy(batch, random.nextInt(size) * dimensions, this.centers, 0, dimensions);
+        double[] weights = new double[size];
+        for (int c = 1; c < this.numClusters; c++) {
+            double total = 0.0;
+            for (int row = 0; row < size; row++) {
+                weights[row] = Distortion.minSquared(batch, row * dimensions, this.centers, c, dimensions);
+                total += weights[row];
+            }
+            int chosen = random.nextInt(size);
+            if (total > 0.0) {
+                double target = random.nextDouble() * total;
+                for (chosen = 0; chosen < size - 1 && target >= weights[chosen]; chosen++) {
+                    target -= weights[chosen];
+                }
+            }
+            System.arraycopy(batch, chosen * dimensions, this.centers, c * dimensions, dimensions);
+        }
+    }
+
+    /**
+     * Assign the whole batch to the current centroids, then move every centroid towards its rows
+     */
+    private void update(double[] batch, int size, int dimensions) {
+        int[] nearest = new int[size];
+        for (int row = 0; row < size; row++) {
+            nearest[row] = nearest(batch, row * dimensions, dimensions);
+        }
+        for (int row = 0; row < size; row++) {
+            int center = nearest[row] * dimensions;
+            double rate = 1.0 / ++this.assigned[nearest[row]];
+            for (int d = 0; d < dimensions; d++) {
+                this.centers[center + d] += rate * (batch[row * dimensions + d] - this.centers[center + d]);
+            }
+        }
+    }
+
+    private int nearest(double[] point, int offset, int dimensions) {
+        int nearest = 0;
+        double min = Double.MAX_VALUE;
+        for (int c = 0; c < this.numClusters; c++) {
+            double distance = Distortion.squared(point, offset, this.centers, c * dimensions, dimensions);
+            if (distance < min) {
+                min = distance;
+                nearest = c;
+            }
+        }
+        return nearest;
+    }
+
+    private void checkFitted() {
+        if (this.centers == null) {
+            throw new IllegalStateException("MiniBatchKMeans has not been fitted");
+        }
+    }
+
+    /**
+     * Streams the complete rows of an ARFF file into row-major batches
+     */
+    private static class Rows implements AutoCloseable {
+        private final InputStream input;
+        private final ArffLoader loader = new ArffLoader();
+        private final Instances structure;
+        private long skipped;
+
+        private Rows(Path arff) throws IOException {
+            this.input = new BufferedInputStream(Files.newInputStream(arff), 1 << 16);
+            this.loader.setSource(this.input);
+            this.structure = this.loader.getStructure();
+        }
+
+        /**
+         * @return number of rows copied into the batch, {@code 0} at the end of the file
+         */
+        private int next(double[] batch, int batchSize) throws IOException {
+            int dimensions = this.structure.numAttributes();
+            int size = 0;
+            Instance instance;
+            while (size < batchSize && (instance = this.loader.getNextInstance(this.structure)) != null) {
+                if (instance.hasMissingValue()) {
+                    this.skipped++;
+                    continue;
+                }
+                for (int d = 0; d < dimensions; d++) {
+                    batch[size * dimensions + d] = instance.value(d);
+                }
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.input.close();
+        }
+    }
+}
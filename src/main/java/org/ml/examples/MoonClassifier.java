@@ -19,24 +19,20 @@
 
 package org.ml.examples;
 
-import org.datavec.api.records.reader.RecordReader;
-import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
-import org.datavec.api.split.FileSplit;
-import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
-import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.layers.DenseLayer;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.nn.weights.WeightInit;
-import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
+import org.ml.inference.InferenceService;
+import org.ml.inference.NetworkStore;
+import org.ml.training.TrainingPipeline;
 import org.nd4j.evaluation.classification.Evaluation;
 import org.nd4j.linalg.activations.Activation;
-import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.learning.config.Nesterovs;
 import org.nd4j.linalg.lossfunctions.LossFunctions.LossFunction;
 
-import java.io.File;
+import java.nio.file.Path;
 
 /**
  * "Moon" Data Classification Example
@@ -44,6 +40,11 @@ import java.io.File;
  * Based on the data from Jason Baldridge:
  * 	https://github.com/jasonbaldridge/try-tf/tree/master/simdata
  *
+ * Pass the directory holding {@code moon_data_train.csv} and {@code moon_data_eval.csv} as the
+ * first argument to run offline, otherwise the data is downloaded once into ~/dl4j-examples-data.
+ * Training runs on a {@link TrainingPipeline}. An optional second argument saves the trained network
+ * for an {@link InferenceService}, see {@link NetworkStore}.
+ *
  * @author Josh Patterson
  * @author Alex Black (added plots)
  *
@@ -64,21 +65,16 @@ public class MoonClassifier {
         int numOutputs = 2;
         int numHiddenNodes = 50;
 
-        dataLocalPath = DownloaderUtility.CLASSIFICATIONDATA.Download();
-
-        //Load the training data:
-        RecordReader rr = new CSVRecordReader();
-        rr.initialize(new FileSplit(new File(dataLocalPath,"moon_data_train.csv")));
-        DataSetIterator trainIter = new RecordReaderDataSetIterator(rr,batchSize,0,2);
+        dataLocalPath = args.length > 0 ? args[0] : DownloaderUtility.CLASSIFICATIONDATA.Download();
 
-        //Load the test/evaluation data:
-        RecordReader rrTest = new CSVRecordReader();
-        rrTest.initialize(new FileSplit(new File(dataLocalPath,"moon_data_eval.csv")));
-        DataSetIterator testIter = new RecordReaderDataSetIterator(rrTest,batchSize,0,2);
+        //Prefetched, disk cached batches of the local CSV files
+        TrainingPipeline pipeline = new TrainingPipeline();
+        pipeline.setBatchSize(batchSize);
+        pipeline.setLabelIndex(0);
+        pipeline.setNumClasses(numOutputs);
 
         //log.info("Build model....");
-        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
-                .seed(seed)
+        MultiLayerConfiguration conf = pipeline.configuration(seed)
                 .weightInit(WeightInit.XAVIER)
                 .updater(new Nesterovs(learningRate, 0.9))
                 .list()
@@ -92,17 +88,17 @@ public class MoonClassifier {
                 .build();
 
 
-        MultiLayerNetwork model = new MultiLayerNetwork(conf);
-        model.init();
-        model.setListeners(new ScoreIterationListener(100));    //Print score every 100 parameter updates
-
-        model.fit( trainIter, nEpochs );
+        MultiLayerNetwork model = pipeline.fit(conf, Path.of(dataLocalPath, "moon_data_train.csv"), nEpochs);
 
         System.out.println("Evaluate model....");
-        Evaluation eval = model.evaluate(testIter);
+        Evaluation eval = pipeline.evaluate(model, Path.of(dataLocalPath, "moon_data_eval.csv"));
 
         //Print the evaluation statistics
         System.out.println(eval.stats());
+        if (args.length > 1) {
+            NetworkStore.save(model, Path.of(args[1]));
+            System.out.println("Model saved to " + args[1]);
+        }
         System.out.println("\n****************Example finished********************");
 
         //Training is complete. Code that follows is for plotting the data & predictions only
@@ -0,0 +1,188 @@
+package org.ml.inference;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores single rows with a trained network by gathering concurrent requests into micro-batches.
+ * One worker thread takes the first waiting request, collects more for at most {@link #maxWaitMicros}
+ * or until {@link #maxBatchSize} rows are gathered, and runs one {@link MultiLayerNetwork#output}
+ * call for the whole batch. One forward pass over many rows costs little more than over one row,
+ * so under concurrent load throughput grows with the batch size while a lone request waits at
+ * most {@link #maxWaitMicros}. The network is only used by the worker thread.
+ */
+@Setter
+@Getter
+public class InferenceService implements AutoCloseable {
+    private static final Histogram BATCH_ROWS = Metrics.registry().histogram("inference.batch.rows");
+    private static final Histogram BATCH_NANOS = Metrics.registry().histogram("inference.batch.nanos");
+
+    /**
+     * Rows scored by one forward pass {@code default = 64}
+     */
+    int maxBatchSize;
+
+    /**
+     * Time in microseconds the first request of a batch waits for more {@code default = 500}
+     */
+    long maxWaitMicros;
+
+    /**
+     * Requests queued before new ones are rejected {@code default = 10000}
+     */
+    int queueCapacity;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final MultiLayerNetwork model;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final int inputs;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile BlockingQueue<Request> queue;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile Thread worker;
+
+    /**
+     * Constructs a new InferenceService with default values, call {@link #start()} before use
+     * @param model trained network, it must not be used elsewhere while the service runs
+     */
+    public InferenceService(MultiLayerNetwork model) {
+        this.model = model;
+        this.inputs = model.layerInputSize(0);
+        this.maxBatchSize = 64;
+        this.maxWaitMicros = 500;
+        this.queueCapacity = 10000;
+    }
+
+    /**
+     * Start the worker thread
+     * @throws IllegalStateException If the service is already running
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            throw new IllegalStateException("Inference service is already running");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        worker = new Thread(this::run, "inference");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stop the worker, requests that were not scored yet fail
+     */
+    @Override
+    public synchronized void close() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * Score one row
+     * @param features input values, one per network input
+     * @return future completed with the network output of the row, for classifiers the class
+     *         probabilities; failed with a {@link RejectedExecutionException} if the queue is full or
+     *         the service is not running
+     * @throws IllegalArgumentException If the number of features does not match the network
+     */
+    public CompletableFuture<double[]> predict(double[] features) {
+        if (features.length != inputs) {
+            throw new IllegalArgumentException("Expected " + inputs + " features, got " + features.length);
+        }
+        Request request = new Request(features);
+        BlockingQueue<Request> current = queue;
+        if (current == null || worker == null) {
+            request.result.completeExceptionally(new RejectedExecutionException("Inference service is not running"));
+        } else if (!current.offer(request)) {
+            request.result.completeExceptionally(new RejectedExecutionException("Inference queue is full"));
+        } else if (worker == null && current.remove(request)) {
+            // closed while offering, the worker may already have failed the pending requests
+            request.result.completeExceptionally(new RejectedExecutionException("Inference service is not running"));
+        }
+        return request.result;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        long maxWait = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - batch.size());
+                long deadline = System.nanoTime() + maxWait;
+                while (batch.size() < maxBatchSize) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+                score(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // stopping
+        }
+        batch.addAll(queue);
+        queue.clear();
+        for (Request request : batch) {
+            request.result.completeExceptionally(new RejectedExecutionException("Inference service stopped"));
+        }
+    }
+
+    private void score(List<Request> batch) {
+        long start = Metrics.start();
+        int rows = batch.size();
+        double[] values = new double[rows * inputs];
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(batch.get(r).features, 0, values, r * inputs, inputs);
+        }
+        double[][] outputs;
+        try {
+            INDArray features = Nd4j.create(values, new long[]{rows, inputs}, 'c');
+            outputs = model.output(features, false).toDoubleMatrix();
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+        BATCH_NANOS.recordSince(start);
+        BATCH_ROWS.record(rows);
+        for (int r = 0; r < rows; r++) {
+            batch.get(r).result.complete(outputs[r]);
+        }
+    }
+
+    private static class Request {
+        private final double[] features;
+        private final CompletableFuture<double[]> result = new CompletableFuture<>();
+
+        private Request(double[] features) {
+            this.features = features;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.ml.inference;
+
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Saves and restores trained networks with {@link ModelSerializer}. Only the configuration and
+ * parameters are stored, without updater state, so files are smaller and restore faster. A
+ * restored network has run one forward pass, which allocates its workspaces before the first
+ * request instead of during it.
+ */
+public class NetworkStore {
+
+    private NetworkStore() {
+    }
+
+    /**
+     * Save a network for inference
+     * @param model trained network
+     * @param path file to create or overwrite
+     * @throws IOException If the file can not be written
+     */
+    public static void save(MultiLayerNetwork model, Path path) throws IOException {
+        ModelSerializer.writeModel(model, path.toFile(), false);
+    }
+
+    /**
+     * Restore a network saved by {@link #save(MultiLayerNetwork, Path)} and warm it up
+     * @param path saved network
+     * @return network ready for {@link MultiLayerNetwork#output}
+     * @throws IOException If the file can not be read or holds no network
+     */
+    public static MultiLayerNetwork load(Path path) throws IOException {
+        MultiLayerNetwork model = ModelSerializer.restoreMultiLayerNetwork(path.toFile(), false);
+        model.output(Nd4j.zeros(1, model.layerInputSize(0)), false);
+        return model;
+    }
+}
@@ -0,0 +1,234 @@
+package org.ml.training;
+
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.ExistingMiniBatchDataSetIterator;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Saves the vectorised mini-batches of a source iterator to a directory while they are consumed
+ * for the first time, and serves every later pass from those files, so CSV parsing and
+ * vectorisation happen once per data set instead of once per epoch.
+ * <p>
+ * Batches are written to {@code <directory>.partial} and the directory is only moved in place
+ * once the source is exhausted, so an existing cache directory is always complete and an
+ * interrupted first pass leaves nothing behind. Later runs pick the cache up without reading the
+ * source again. Batches are cached
+ * before the {@link #setPreProcessor(DataSetPreProcessor) pre-processor} is applied.
+ * <p>
+ * Batches are cached with the size of the source iterator, {@link #next(int)} merges and splits them
+ * to serve other sizes.
+ */
+public class DiskCachedDataSetIterator implements DataSetIterator {
+
+    private final DataSetIterator source;
+    private final Path directory;
+    private final Path partial;
+    private DataSetIterator cached;
+    private DataSet pending;
+    private DataSetPreProcessor preProcessor;
+    private boolean exhausted;
+    private int written;
+
+    /**
+     * @param source iterator producing the batches, only read if the cache is not complete
+     * @param directory cache directory of this data set
+     */
+    public DiskCachedDataSetIterator(DataSetIterator source, Path directory) {
+        this.source = source;
+        this.directory = directory;
+        this.partial = directory.resolveSibling(directory.getFileName() + ".partial");
+        if (isComplete(directory)) {
+            this.cached = new ExistingMiniBatchDataSetIterator(directory.toFile());
+        } else {
+            startWriting();
+        }
+    }
+
+    /**
+     * @param directory cache directory
+     * @return whether a previous first pass completed in the directory
+     */
+    public static boolean isComplete(Path directory) {
+        return Files.isDirectory(directory);
+    }
+
+    /**
+     * @return whether batches are served from the cache
+     */
+    public boolean isCached() {
+        return cached != null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending != null) {
+            return true;
+        }
+        if (cached != null) {
+            return !exhausted && cached.hasNext();
+        }
+        if (source.hasNext()) {
+            return true;
+        }
+        commit();
+        return false;
+    }
+
+    @Override
+    public DataSet next() {
+        if (pending != null) {
+            DataSet batch = pending;
+            pending = null;
+            return batch;
+        }
+        DataSet batch;
+        if (cached != null) {
+            batch = cached.next();
+        } else {
+            batch = source.next();
+            batch.save(partial.resolve(String.format(ExistingMiniBatchDataSetIterator.DEFAULT_PATTERN, written++))
+                    .toFile());
+        }
+        if (preProcessor != null) {
+            preProcessor.preProcess(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Serve a batch of another size than the cached ones. Cached batches are merged until
+     * {@code num} examples are available, the examples beyond {@code num} are served first by the
+     * next call.
+     * @param num number of examples
+     * @return next {@code num} examples, fewer at the end of the data
+     */
+    @Override
+    public DataSet next(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + num);
+        }
+        List<DataSet> parts = new ArrayList<>();
+        int size = 0;
+        while (size < num && hasNext()) {
+            DataSet batch = next();
+            parts.add(batch);
+            size += batch.numExamples();
+        }
+        if (parts.isEmpty()) {
+            throw new NoSuchElementException("No more batches");
+        }
+        DataSet merged = parts.size() == 1 ? parts.get(0) : DataSet.merge(parts);
+        if (size > num) {
+            pending = (DataSet) merged.getRange(num, size);
+            merged = (DataSet) merged.getRange(0, num);
+        }
+        return merged;
+    }
+
+    /**
+     * Start the next pass. After a complete first pass it reads the cache, after an interrupted
+     * one the source is read and cached again from the start.
+     */
+    @Override
+    public void reset() {
+        pending = null;
+        if (cached == null && !source.hasNext()) {
+            commit();
+        }
+        if (cached != null) {
+            cached.reset();
+            exhausted = false;
+            return;
+        }
+        source.reset();
+        startWriting();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return cached != null || source.resetSupported();
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public int inputColumns() {
+        return source.inputColumns();
+    }
+
+    @Override
+    public int totalOutcomes() {
+        return source.totalOutcomes();
+    }
+
+    @Override
+    public int batch() {
+        return source.batch();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return source.getLabels();
+    }
+
+    private void startWriting() {
+        try {
+            delete(partial);
+            Files.createDirectories(partial);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not create cache directory " + partial, e);
+        }
+        written = 0;
+    }
+
+    private void commit() {
+        if (cached != null) {
+            return;
+        }
+        try {
+            delete(directory);
+            Files.move(partial, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not complete cache directory " + directory, e);
+        }
+        cached = new ExistingMiniBatchDataSetIterator(directory.toFile());
+        // the first pass is over, the cache is read from the next reset on
+        exhausted = true;
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.ml.training;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
+import org.datavec.api.split.FileSplit;
+import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
+import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
+import org.nd4j.evaluation.classification.Evaluation;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Offline training pipeline for DL4J classifiers on local CSV files, the base for learned models
+ * such as MoonClassifier or re-rankers over Slope One candidates. Nothing is downloaded and no UI
+ * is opened.
+ * <ul>
+ * <li>Batches are prefetched on a background thread by an {@link AsyncDataSetIterator}, so
+ * vectorisation overlaps with {@code fit}.</li>
+ * <li>Vectorised batches are cached in {@link #cacheDirectory} by a {@link DiskCachedDataSetIterator}
+ * during the first epoch, later epochs and later runs read the binary batches instead of the CSV.</li>
+ * <li>Networks are trained and evaluated with {@link #workspaceMode} workspaces, so activations
+ * and gradients reuse off-heap memory between iterations instead of allocating it per batch.</li>
+ * </ul>
+ */
+@Setter
+@Getter
+public class TrainingPipeline {
+
+    /**
+     * Rows per mini-batch {@code default = 50}
+     */
+    int batchSize;
+
+    /**
+     * CSV column holding the class index {@code default = 0}
+     */
+    int labelIndex;
+
+    /**
+     * Number of classes {@code default = 2}
+     */
+    int numClasses;
+
+    /**
+     * Batches prefetched ahead of {@code fit}, {@code 0} reads them on the training thread {@code default = 4}
+     */
+    int prefetchBatches;
+
+    /**
+     * Root of the vectorised batch caches, {@code null} disables caching
+     * {@code default = <java.io.tmpdir>/dl4j-dataset-cache}
+     */
+    Path cacheDirectory;
+
+    /**
+     * Workspace mode used for training and inference {@code default = ENABLED}
+     */
+    WorkspaceMode workspaceMode;
+
+    /**
+     * Iterations between two printed scores, {@code 0} prints nothing {@code default = 100}
+     */
+    int scoreFrequency;
+
+    /**
+     * Constructs a new TrainingPipeline with default values
+     */
+    public TrainingPipeline() {
+        this.batchSize = 50;
+        this.labelIndex = 0;
+        this.numClasses = 2;
+        this.prefetchBatches = 4;
+        this.cacheDirectory = Path.of(System.getProperty("java.io.tmpdir"), "dl4j-dataset-cache");
+        this.workspaceMode = WorkspaceMode.ENABLED;
+        this.scoreFrequency = 100;
+    }
+
+    /**
+     * Start a network configuration with the pipeline's workspace settings
+     * @param seed random seed of the network
+     * @return configuration builder, add the updater and layers
+     */
+    public NeuralNetConfiguration.Builder configuration(long seed) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(seed)
+                .trainingWorkspaceMode(workspaceMode)
+                .inferenceWorkspaceMode(workspaceMode)
+                .cacheMode(CacheMode.NONE);
+    }
+
+    /**
+     * Iterate a CSV file of numeric features and a class index
+     * @param csv local CSV file
+     * @return iterator with prefetching and disk caching as configured
+     * @throws IOException If the file or the cache can not be accessed
+     */
+    public DataSetIterator iterator(Path csv) throws IOException {
+        if (!Files.isRegularFile(csv)) {
+            throw new FileNotFoundException("No data file " + csv);
+        }
+        RecordReader reader = new CSVRecordReader();
+        try {
+            reader.initialize(new FileSplit(csv.toFile()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening " + csv, e);
+        }
+        DataSetIterator iterator = new RecordReaderDataSetIterator(reader, batchSize, labelIndex, numClasses);
+        if (cacheDirectory != null) {
+            Files.createDirectories(cacheDirectory);
+            iterator = new DiskCachedDataSetIterator(iterator, cacheDirectory.resolve(cacheName(csv)));
+        }
+        if (prefetchBatches > 0) {
+            iterator = new AsyncDataSetIterator(iterator, prefetchBatches, true);
+        }
+        return iterator;
+    }
+
+    /**
+     * Train a new network
+     * @param configuration network configuration, its workspace modes are replaced by {@link #workspaceMode}
+     * @param training local training CSV file
+     * @param epochs passes over the training data
+     * @return trained network
+     * @throws IOException If the file or the cache can not be accessed
+     */
+    public MultiLayerNetwork fit(MultiLayerConfiguration configuration, Path training, int epochs)
+            throws IOException {
+        configuration.setTrainingWorkspaceMode(workspaceMode);
+        configuration.setInferenceWorkspaceMode(workspaceMode);
+        MultiLayerNetwork model = new MultiLayerNetwork(configuration);
+        model.init();
+        if (scoreFrequency > 0) {
+            model.setListeners(new ScoreIterationListener(scoreFrequency));
+        }
+        DataSetIterator iterator = iterator(training);
+        try {
+            model.fit(iterator, epochs);
+        } finally {
+            shutdown(iterator);
+        }
+        return model;
+    }
+
+    /**
+     * Train a new network on a background thread, see {@link #fit(MultiLayerConfiguration, Path, int)}
+     * @param configuration network configuration
+     * @param training local training CSV file
+     * @param epochs passes over the training data
+     * @return future completed with the trained network, or with the failure
+     */
+    public CompletableFuture<MultiLayerNetwork> fitAsync(MultiLayerConfiguration configuration, Path training,
+                                                         int epochs) {
+        CompletableFuture<MultiLayerNetwork> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                result.complete(fit(configuration, training, epochs));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "training-" + training.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Evaluate a classifier
+     * @param model trained network
+     * @param test local test CSV file
+     * @return classification statistics
+     * @throws IOException If the file or the cache can not be accessed
+     */
+    public Evaluation evaluate(MultiLayerNetwork model, Path test) throws IOException {
+        DataSetIterator iterator = iterator(test);
+        try {
+            return model.evaluate(iterator);
+        } finally {
+            shutdown(iterator);
+        }
+    }
+
+    /**
+     * Cache directory name of a file, changes when the file or the vectorisation settings change. The
+     * key is hashed with SHA-256, so two sources never share a cache directory by a hash collision.
+     */
+    private String cacheName(Path csv) throws IOException {
+        String key = csv.toAbsolutePath().normalize() + "|" + Files.size(csv) + "|"
+                + Files.getLastModifiedTime(csv).toMillis() + "|" + batchSize + "|" + labelIndex + "|" + numClasses;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return csv.getFileName() + "-" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void shutdown(DataSetIterator iterator) {
+        if (iterator instanceof AsyncDataSetIterator async) {
+            async.shutdown();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.server;
+
+import org.main.Item;
+import org.main.Recommendation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON writer for the responses of {@link RecommendationServer}
+ */
+final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @param predictions predicted rating of every item
+     * @return {@code {"item": score, ...}}, non-finite scores are left out
+     */
+    static String predictions(Map<Item, Double> predictions) {
+        StringBuilder json = new StringBuilder(predictions.size() * 24 + 2).append('{');
+        for (Map.Entry<Item, Double> prediction : predictions.entrySet()) {
+            if (Double.isFinite(prediction.getValue())) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                quote(json, prediction.getKey().getItemName()).append(':').append(prediction.getValue());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param recommendations recommendations in rank order
+     * @return {@code [{"item": name, "score": score}, ...]}
+     */
+    static String recommendations(List<Recommendation> recommendations) {
+        StringBuilder json = new StringBuilder(recommendations.size() * 40 + 2).append('[');
+        for (Recommendation recommendation : recommendations) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"item\":");
+            quote(json, recommendation.getItem().getItemName()).append(",\"score\":");
+            json.append(recommendation.getScore()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @param message error description
+     * @return {@code {"error": message}}
+     */
+    static String error(String message) {
+        return quote(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString();
+    }
+
+    static StringBuilder quote(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+}
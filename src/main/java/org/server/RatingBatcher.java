@@ -0,0 +1,186 @@
+package org.server;
+
+import org.main.Item;
+import org.main.SlopeOne;
+import org.main.User;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies ingested ratings on one writer thread. Requests arriving within {@code maxDelay} of each
+ * other are coalesced into one batch of at most {@code batchSize} ratings, which is applied to the
+ * model and published as a single new snapshot, so the snapshot copy is paid once per batch instead
+ * of once per rating. A request's future completes once its ratings are visible to readers.
+ * <p>
+ * Requests are applied atomically: a request whose ratings can not all be applied is rolled back
+ * and fails alone, the other requests of its batch are still published.
+ */
+class RatingBatcher {
+    private static final Histogram BATCH_RATINGS = Metrics.registry().histogram("server.ingest.batch.ratings");
+    private static final Histogram APPLY_NANOS = Metrics.registry().histogram("server.ingest.apply.nanos");
+
+    private final SlopeOne slopeOne;
+    private final int batchSize;
+    private final long maxDelay;
+    private final BlockingQueue<Request> queue;
+    private final Thread writer;
+
+    /**
+     * @param slopeOne model receiving the ratings
+     * @param batchSize ratings applied before a snapshot is published
+     * @param maxDelayMillis time a batch waits for more requests
+     * @param capacity maximum number of queued requests
+     */
+    RatingBatcher(SlopeOne slopeOne, int batchSize, long maxDelayMillis, int capacity) {
+        this.slopeOne = slopeOne;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelay = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "rating-ingest");
+        this.writer.setDaemon(true);
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    void stop() {
+        writer.interrupt();
+    }
+
+    /**
+     * Queue ratings for the next batch
+     * @param ratings ratings of one request
+     * @return future completed with the number of applied ratings once they are published, or
+     *         {@code null} if the queue is full
+     */
+    CompletableFuture<Integer> submit(List<Rating> ratings) {
+        Request request = new Request(ratings);
+        return queue.offer(request) ? request.done : null;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                int ratings = batch.get(0).ratings.size();
+                long deadline = System.nanoTime() + maxDelay;
+                while (ratings < batchSize) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    ratings += next.ratings.size();
+                }
+                apply(batch, ratings);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            batch.addAll(queue);
+            for (Request request : batch) {
+                request.done.completeExceptionally(new IllegalStateException("Server is stopping"));
+            }
+        }
+    }
+
+    /**
+     * Apply every request on its own, a request that fails is rolled back and only its future fails.
+     * The applied requests are published together, if publishing fails they are rolled back as well.
+     */
+    private void apply(List<Request> batch, int ratings) {
+        long start = Metrics.start();
+        List<Request> applied = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            try {
+                apply(request);
+                applied.add(request);
+            } catch (RuntimeException e) {
+                request.done.completeExceptionally(e);
+            }
+        }
+        try {
+            slopeOne.publish();
+        } catch (RuntimeException e) {
+            for (int i = applied.size() - 1; i >= 0; i--) {
+                rollBack(applied.get(i), applied.get(i).ratings.size(), e);
+                applied.get(i).done.completeExceptionally(e);
+            }
+            return;
+        }
+        APPLY_NANOS.recordSince(start);
+        BATCH_RATINGS.record(ratings);
+        for (Request request : applied) {
+            request.done.complete(request.ratings.size());
+        }
+    }
+
+    /**
+     * Set all ratings of a request, remembering the replaced values so they can be restored
+     */
+    private void apply(Request request) {
+        int applied = 0;
+        try {
+            for (Rating rating : request.ratings) {
+                request.previous[applied] = slopeOne.getRating(rating.user, rating.item);
+                slopeOne.setRating(rating.user, rating.item, rating.value);
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            rollBack(request, applied, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Restore the first {@code applied} ratings of a request in reverse order
+     */
+    private void rollBack(Request request, int applied, RuntimeException cause) {
+        for (int i = applied - 1; i >= 0; i--) {
+            Rating rating = request.ratings.get(i);
+            try {
+                if (Double.isNaN(request.previous[i])) {
+                    slopeOne.removeRating(rating.user, rating.item);
+                } else {
+                    slopeOne.setRating(rating.user, rating.item, request.previous[i]);
+                }
+            } catch (RuntimeException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * One ingested rating
+     */
+    static class Rating {
+        private final User user;
+        private final Item item;
+        private final double value;
+
+        Rating(User user, Item item, double value) {
+            this.user = user;
+            this.item = item;
+            this.value = value;
+        }
+    }
+
+    private static class Request {
+        private final List<Rating> ratings;
+        private final double[] previous;
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+
+        private Request(List<Rating> ratings) {
+            this.ratings = ratings;
+            this.previous = new double[ratings.size()];
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package org.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.main.Item;
+import org.main.SlopeOne;
+import org.main.User;
+import org.metrics.ConsoleReporter;
+import org.metrics.Histogram;
+import org.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Embedded HTTP front end of a {@link SlopeOne} model on the JDK {@link HttpServer}. Every exchange
+ * runs on its own virtual thread, so slow clients and ingest requests waiting for their batch do
+ * not hold platform threads. The server never touches AWT or Swing and runs in headless JVMs.
+ * <pre>
+ * GET  /predict?user=U           {"item": score, ...} for every unrated item, 404 for unknown users
+ * GET  /recommend?user=U&amp;n=10    [{"item": name, "score": score}, ...] best unrated items,
+ *                                400 for {@code n} above {@link #maxTopN}
+ * POST /ratings                  user,item,rating lines, answered once the ratings are published,
+ *                                413 for bodies above {@link #maxIngestBytes}
+ * GET  /metrics                  plain text snapshot of {@link Metrics#registry()}
+ * GET  /health                   ok
+ * </pre>
+ * Ingested ratings are coalesced by a {@link RatingBatcher}, see {@link #ingestBatchSize}.
+ */
+@Setter
+@Getter
+public class RecommendationServer {
+    private static final Histogram PREDICT_NANOS = Metrics.registry().histogram("server.predict.nanos");
+    private static final Histogram RECOMMEND_NANOS = Metrics.registry().histogram("server.recommend.nanos");
+    private static final Histogram INGEST_NANOS = Metrics.registry().histogram("server.ingest.nanos");
+
+    /**
+     * Listening port, {@code 0} picks a free port, see {@link #boundPort()} {@code default = 8080}
+     */
+    int port;
+
+    /**
+     * Maximum number of queued connections {@code default = 1024}
+     */
+    int backlog;
+
+    /**
+     * Ratings applied before a new snapshot is published {@code default = 512}
+     */
+    int ingestBatchSize;
+
+    /**
+     * Time in milliseconds a batch waits for more ratings {@code default = 5}
+     */
+    long ingestMaxDelayMillis;
+
+    /**
+     * Ingest requests queued before new ones are rejected with {@code 503} {@code default = 10000}
+     */
+    int ingestQueueCapacity;
+
+    /**
+     * Time in milliseconds an ingest request waits for its batch {@code default = 10000}
+     */
+    long ingestTimeoutMillis;
+
+    /**
+     * Largest accepted {@code /ratings} body in bytes, larger bodies are rejected with {@code 413}
+     * {@code default = 4194304}
+     */
+    long maxIngestBytes;
+
+    /**
+     * Default number of recommendations of {@code /recommend} {@code default = 10}
+     */
+    int defaultTopN;
+
+    /**
+     * Largest {@code n} accepted by {@code /recommend}, larger values are rejected with {@code 400}
+     * {@code default = 1000}
+     */
+    int maxTopN;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final SlopeOne slopeOne;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private HttpServer server;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ExecutorService executor;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private RatingBatcher batcher;
+
+    /**
+     * Constructs a new RecommendationServer with default values
+     * @param slopeOne trained model to serve, ingested ratings are applied to it
+     */
+    public RecommendationServer(SlopeOne slopeOne) {
+        this.slopeOne = slopeOne;
+        this.port = 8080;
+        this.backlog = 1024;
+        this.ingestBatchSize = 512;
+        this.ingestMaxDelayMillis = 5;
+        this.ingestQueueCapacity = 10000;
+        this.ingestTimeoutMillis = 10000;
+        this.maxIngestBytes = 4 * 1024 * 1024;
+        this.defaultTopN = 10;
+        this.maxTopN = 1000;
+    }
+
+    /**
+     * Bind the port and start serving
+     * @throws IOException If the port can not be bound
+     * @throws IllegalStateException If the server is already running
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server is already running");
+        }
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), backlog);
+        batcher = new RatingBatcher(slopeOne, ingestBatchSize, ingestMaxDelayMillis, ingestQueueCapacity);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(executor);
+        http.createContext("/predict", exchange -> handle(exchange, "GET", this::predict));
+        http.createContext("/recommend", exchange -> handle(exchange, "GET", this::recommend));
+        http.createContext("/ratings", exchange -> handle(exchange, "POST", this::ingest));
+        http.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+        http.createContext("/health", exchange -> handle(exchange, "GET", e -> respond(e, 200, "ok", "text/plain")));
+        batcher.start();
+        http.start();
+        server = http;
+    }
+
+    /**
+     * Stop accepting requests, wait up to {@code delaySeconds} for running exchanges and fail
+     * ingest requests that were not applied yet
+     * @param delaySeconds maximum time to wait for running exchanges
+     */
+    public synchronized void stop(int delaySeconds) {
+        if (server == null) {
+            return;
+        }
+        server.stop(delaySeconds);
+        batcher.stop();
+        executor.shutdown();
+        server = null;
+    }
+
+    /**
+     * @return port the running server listens on
+     * @throws IllegalStateException If the server is not running
+     */
+    public synchronized int boundPort() {
+        if (server == null) {
+            throw new IllegalStateException("Server is not running");
+        }
+        return server.getAddress().getPort();
+    }
+
+    private void predict(HttpExchange exchange) throws IOException {
+        long start = Metrics.start();
+        User user = new User(required(query(exchange), "user"));
+        if (slopeOne.getModel().ratingsOf(user) == null) {
+            respond(exchange, 404, Json.error("Unknown user: " + user.getUsername()), "application/json");
+            return;
+        }
+        String body = Json.predictions(slopeOne.predict(user));
+        PREDICT_NANOS.recordSince(start);
+        respond(exchange, 200, body, "application/json");
+    }
+
+    private void recommend(HttpExchange exchange) throws IOException {
+        long start = Metrics.start();
+        Map<String, String> query = query(exchange);
+        User user = new User(required(query, "user"));
+        int n = query.containsKey("n") ? parseInt(query.get("n"), "n") : defaultTopN;
+        if (n > maxTopN) {
+            throw new IllegalArgumentException("Parameter n exceeds " + maxTopN);
+        }
+        if (slopeOne.getModel().ratingsOf(user) == null) {
+            respond(exchange, 404, Json.error("Unknown user: " + user.getUsername()), "application/json");
+            return;
+        }
+        String body = Json.recommendations(slopeOne.recommend(user, n));
+        RECOMMEND_NANOS.recordSince(start);
+        respond(exchange, 200, body, "application/json");
+    }
+
+    private void ingest(HttpExchange exchange) throws IOException {
+        long start = Metrics.start();
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && Long.parseLong(length.trim()) > maxIngestBytes) {
+            respond(exchange, 413, Json.error("Body exceeds " + maxIngestBytes + " bytes"), "application/json");
+            return;
+        }
+        List<RatingBatcher.Rating> ratings;
+        try {
+            ratings = parseRatings(new LimitedInputStream(exchange.getRequestBody(), maxIngestBytes));
+        } catch (BodyTooLargeException e) {
+            respond(exchange, 413, Json.error(e.getMessage()), "application/json");
+            return;
+        }
+        if (ratings.isEmpty()) {
+            respond(exchange, 200, "{\"applied\":0}", "application/json");
+            return;
+        }
+        CompletableFuture<Integer> applied = batcher.submit(ratings);
+        if (applied == null) {
+            respond(exchange, 503, Json.error("Ingest queue is full"), "application/json");
+            return;
+        }
+        try {
+            int count = applied.get(ingestTimeoutMillis, TimeUnit.MILLISECONDS);
+            INGEST_NANOS.recordSince(start);
+            respond(exchange, 200, "{\"applied\":" + count + "}", "application/json");
+        } catch (TimeoutException e) {
+            respond(exchange, 504, Json.error("Ratings were not applied in time"), "application/json");
+        } catch (ExecutionException e) {
+            int status = e.getCause() instanceof IllegalArgumentException ? 400 : 503;
+            respond(exchange, status, Json.error(e.getCause().getMessage()), "application/json");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, Json.error("Interrupted"), "application/json");
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        new ConsoleReporter(new PrintStream(text, false, StandardCharsets.UTF_8)).report(Metrics.registry().snapshot());
+        respond(exchange, 200, text.toString(StandardCharsets.UTF_8), "text/plain");
+    }
+
+    /**
+     * Parse {@code user,item,rating} lines as they are read, blank lines and a {@code user,item,rating}
+     * header are skipped
+     */
+    private static List<RatingBatcher.Rating> parseRatings(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        List<RatingBatcher.Rating> ratings = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("user,")) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 3 || fields[0].isEmpty() || fields[1].isEmpty()) {
+                throw new IllegalArgumentException("Expected user,item,rating: " + line);
+            }
+            double value;
+            try {
+                value = Double.parseDouble(fields[2].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid rating: " + line);
+            }
+            if (!Double.isFinite(value)) {
+                throw new IllegalArgumentException("Invalid rating: " + line);
+            }
+            ratings.add(new RatingBatcher.Rating(new User(fields[0]), new Item(fields[1]), value));
+        }
+        return ratings;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException("Negative parameter: " + name);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid parameter: " + name);
+        }
+    }
+
+    /**
+     * Check the method and map failures to status codes, {@code 400} for invalid requests
+     */
+    private static void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                respond(exchange, 405, Json.error("Use " + method), "application/json");
+                return;
+            }
+            try {
+                handler.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, Json.error(e.getMessage()), "application/json");
+            } catch (RuntimeException e) {
+                respond(exchange, 500, Json.error(e.toString()), "application/json");
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body, String contentType)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Request body that fails once more than {@code limit} bytes are read, so a body without or with
+     * a wrong {@code Content-Length} is cut off while it streams in
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long read;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int bytes) throws BodyTooLargeException {
+            read += bytes;
+            if (read > limit) {
+                throw new BodyTooLargeException("Body exceeds " + limit + " bytes");
+            }
+        }
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private BodyTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
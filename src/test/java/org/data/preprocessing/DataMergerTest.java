@@ -0,0 +1,65 @@
+package org.data.preprocessing;
+
+import org.data.storage.RatingStoreConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Distinct (user, item) pairs must never be merged, whatever characters and lengths their names have,
+ * and the merged file must read back to the same pairs.
+ */
+class DataMergerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void namesWithSeparatorsDoNotCollide() throws IOException {
+        Path shards = Files.createDirectory(directory.resolve("shards"));
+        Files.writeString(shards.resolve("a.arff"), """
+                @relation ratings
+                @attribute user string
+                @attribute item string
+                @attribute rating numeric
+                @data
+                'a,b',c,1
+                a,'b,c',2
+                'say \\"hi\\"',' padded ',3
+                'two\\nlines',d,4
+                """);
+        Path output = directory.resolve("merged.csv");
+        assertEquals(4, merger().merge(shards, output));
+        assertEquals(Map.of("a,b|c", 1.0, "a|b,c", 2.0, "say \"hi\"| padded ", 3.0, "two\nlines|d", 4.0),
+                readBack(output));
+    }
+
+    @Test
+    void longNamesAreMerged() throws IOException {
+        Path shards = Files.createDirectory(directory.resolve("shards"));
+        String user = "u".repeat(70_000);
+        Files.writeString(shards.resolve("a.csv"), user + ",x,3\n" + user + ",x,4\n");
+        Path output = directory.resolve("merged.csv");
+        assertEquals(1, merger().merge(shards, output));
+        assertEquals(Map.of(user + "|x", 4.0), readBack(output));
+    }
+
+    private static Map<String, Double> readBack(Path csv) throws IOException {
+        Map<String, Double> ratings = new HashMap<>();
+        RatingStoreConverter.readCsv(csv, (user, item, rating) -> ratings.put(user + '|' + item, rating));
+        return ratings;
+    }
+
+    private static DataMerger merger() {
+        DataMerger merger = new DataMerger();
+        merger.setPartitions(1);
+        return merger;
+    }
+}
@@ -0,0 +1,106 @@
+package org.main;
+
+import org.data.storage.Csv;
+import org.data.storage.RatingStoreConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * CSV scores must be byte-identical to {@code DecimalFormat("#0.000")}, ties included, and part files
+ * must read back to the same names whatever characters and lengths they have.
+ */
+class BatchScorerTest {
+
+    private static final String LONG_NAME = "u".repeat(70_000);
+
+    @TempDir
+    Path directory;
+
+    private final DecimalFormat format = new DecimalFormat("#0.000", DecimalFormatSymbols.getInstance(Locale.ROOT));
+
+    @Test
+    void tiesRoundHalfEven() {
+        assertFixed(3.0625, -3.0625, 0.1245, 2.0005, 0.0005, -0.0005, -0.0004, -0.0, 0.0,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e20, 123456789012345.67);
+    }
+
+    @Test
+    void randomValuesMatchDecimalFormat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            assertFixed((random.nextInt(200_001) - 100_000) / 16.0 / (1 << random.nextInt(6)),
+                    random.nextGaussian() * 5);
+        }
+    }
+
+    @Test
+    void csvPartsReadBack() throws IOException {
+        BatchScorer scorer = new BatchScorer();
+        scorer.setParallelism(1);
+        scorer.score(model(), directory);
+        Map<String, Set<String>> predicted = new HashMap<>();
+        RatingStoreConverter.readCsv(directory.resolve("part-00000.csv"),
+                (user, item, score) -> predicted.computeIfAbsent(user, u -> new HashSet<>()).add(item));
+        assertEquals(Set.of("x,y"), predicted.get("a,\"b\""));
+        assertEquals(Set.of("x,y", "z"), predicted.get(LONG_NAME));
+    }
+
+    @Test
+    void binaryPartsReadBack() throws IOException {
+        BatchScorer scorer = new BatchScorer();
+        scorer.setParallelism(1);
+        scorer.setFormat(BatchScorer.Format.BINARY);
+        scorer.score(model(), directory);
+        Set<String> users = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(directory.resolve("part-00000.bin")))) {
+            while (in.available() > 0) {
+                byte[] name = new byte[in.readInt()];
+                in.readFully(name);
+                users.add(new String(name, StandardCharsets.UTF_8));
+                in.skipNBytes(8L * in.readInt());
+            }
+        }
+        assertEquals(Set.of("a,\"b\"", LONG_NAME, "c"), users);
+        Set<String> items = new HashSet<>();
+        for (String line : Files.readAllLines(directory.resolve("items.csv")).subList(1, 4)) {
+            items.add(Csv.parse(line).get(1));
+        }
+        assertEquals(Set.of("w", "x,y", "z"), items);
+    }
+
+    /**
+     * Two users with awkward names who did not rate {@code "x,y"}, which the third user did
+     */
+    private static SlopeOneModel model() {
+        Map<User, Map<Item, Double>> data = new HashMap<>();
+        data.put(new User("a,\"b\""), Map.of(new Item("w"), 1.0, new Item("z"), 2.0));
+        data.put(new User(LONG_NAME), Map.of(new Item("w"), 2.0));
+        data.put(new User("c"), Map.of(new Item("w"), 3.0, new Item("x,y"), 4.0, new Item("z"), 5.0));
+        return SlopeOneModel.train(data);
+    }
+
+    private void assertFixed(double... values) {
+        StringBuilder out = new StringBuilder();
+        for (double value : values) {
+            out.setLength(0);
+            BatchScorer.appendFixed(out, value);
+            assertEquals(format.format(value), out.toString(), Double.toString(value));
+        }
+    }
+}
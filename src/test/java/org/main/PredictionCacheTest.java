@@ -0,0 +1,62 @@
+package org.main;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Publishing a batch must only drop the cached predictions of the users it changed.
+ */
+class PredictionCacheTest {
+
+    private final User alice = new User("alice");
+    private final User bob = new User("bob");
+    private final Item x = new Item("x");
+    private final Item y = new Item("y");
+    private final Item z = new Item("z");
+
+    @Test
+    void publishKeepsUnchangedUsers() {
+        SlopeOne slopeOne = slopeOne();
+        Map<Item, Double> bobBefore = slopeOne.predict(bob);
+        slopeOne.predict(alice);
+        slopeOne.setRating(alice, z, 1.0);
+        slopeOne.publish();
+        assertSame(bobBefore, slopeOne.predict(bob));
+        assertEquals(Map.of(), slopeOne.predict(alice));
+        assertEquals(1, slopeOne.getCache().getHits());
+    }
+
+    @Test
+    void trainAndSchemeChangesDropEverything() {
+        SlopeOne slopeOne = slopeOne();
+        slopeOne.predict(bob);
+        slopeOne.setScheme(new BiPolarSlopeOne());
+        slopeOne.publish();
+        slopeOne.predict(bob);
+        slopeOne.train(ratings());
+        slopeOne.predict(bob);
+        assertEquals(0, slopeOne.getCache().getHits());
+        assertEquals(3, slopeOne.getCache().getMisses());
+    }
+
+    private SlopeOne slopeOne() {
+        SlopeOne slopeOne = new SlopeOne();
+        slopeOne.train(ratings());
+        slopeOne.setCache(new PredictionCache(100, Duration.ZERO));
+        return slopeOne;
+    }
+
+    private Map<User, Map<Item, Double>> ratings() {
+        Map<User, Map<Item, Double>> data = new HashMap<>();
+        data.put(alice, Map.of(x, 5.0, y, 3.0));
+        data.put(bob, Map.of(x, 4.0));
+        data.put(new User("carol"), Map.of(x, 2.0, y, 1.0, z, 4.0));
+        return data;
+    }
+}
@@ -0,0 +1,31 @@
+package org.main;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every user must get the configured number of ratings, all inside the configured range.
+ */
+class RatingGeneratorTest {
+
+    @Test
+    void steepPopularityStillFillsEveryUser() {
+        RatingGenerator generator = new RatingGenerator(7, 50, 200, 190, 3.0, 1.0, 5.0, 1.0);
+        generator.stream().forEach(rated -> assertEquals(190, rated.getRatings().size()));
+    }
+
+    @Test
+    void steppedRatingsStayInRange() {
+        RatingGenerator generator = new RatingGenerator(7, 200, 50, 20, 1.0, 1.0, 5.0, 1.5);
+        generator.stream().forEach(rated -> {
+            UserRatings ratings = rated.getRatings();
+            for (int i = 0; i < ratings.size(); i++) {
+                double rating = ratings.rating(i);
+                assertTrue(rating >= 1.0 && rating <= 5.0, "rating " + rating);
+                assertEquals(0.0, (rating - 1.0) % 1.5, 1e-9);
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package org.main;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A damaged model file must fail with an {@link IOException}, never with an unchecked exception or
+ * an allocation sized by garbage.
+ */
+class SlopeOneModelStoreTest {
+
+    private static final int HEADER_BYTES = 24;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTrip() throws IOException {
+        SlopeOneModel model = SlopeOneModel.train(ratings(50, 30));
+        Path path = directory.resolve("model.bin");
+        SlopeOneModelStore.save(model, path);
+        SlopeOneModel loaded = SlopeOneModelStore.load(path);
+        User user = new User("User 0");
+        assertEquals(model.predict(user), loaded.predict(user));
+    }
+
+    @Test
+    void hugeItemCountIsRejected() throws IOException {
+        Path path = save(ratings(20, 10));
+        patchInt(path, HEADER_BYTES + 4, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> SlopeOneModelStore.map(path, false));
+    }
+
+    @Test
+    void negativeRatingCountIsRejected() throws IOException {
+        Path path = save(ratings(1, 10));
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer payload = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int position = HEADER_BYTES + 4;
+        int items = payload.getInt(position);
+        position += 4;
+        for (int i = 0; i < items; i++) {
+            position += 4 + payload.getInt(position);
+        }
+        position += 4;
+        position += 4 + payload.getInt(position);
+        patchInt(path, position, -5);
+        assertThrows(IOException.class, () -> SlopeOneModelStore.map(path, false));
+    }
+
+    @Test
+    void randomDamageOnlyFailsWithIOException() throws IOException {
+        Random random = new Random(42);
+        for (int items : new int[]{30, PairMatrix.DENSE_LIMIT + 10}) {
+            byte[] original = Files.readAllBytes(save(ratings(40, items)));
+            for (int round = 0; round < 200; round++) {
+                byte[] damaged = original.clone();
+                for (int k = 0; k < 4; k++) {
+                    damaged[HEADER_BYTES + random.nextInt(Math.min(2000, damaged.length - HEADER_BYTES))] =
+                            (byte) random.nextInt();
+                }
+                Path path = directory.resolve("damaged.bin");
+                Files.write(path, damaged);
+                try {
+                    SlopeOneModelStore.map(path, false);
+                } catch (IOException expected) {
+                    // rejected cleanly
+                }
+                assertThrows(IOException.class, () -> SlopeOneModelStore.load(path));
+            }
+        }
+    }
+
+    private Path save(Map<User, Map<Item, Double>> data) throws IOException {
+        Path path = directory.resolve("model-" + data.size() + ".bin");
+        SlopeOneModelStore.save(SlopeOneModel.train(data), path);
+        return path;
+    }
+
+    private static void patchInt(Path path, int position, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        Files.write(path, bytes);
+    }
+
+    private static Map<User, Map<Item, Double>> ratings(int users, int items) {
+        Random random = new Random(users);
+        Map<User, Map<Item, Double>> data = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            Map<Item, Double> ratings = new HashMap<>();
+            for (int r = 0; r < 8; r++) {
+                ratings.put(new Item("Item " + random.nextInt(items)), 1.0 + random.nextInt(5));
+            }
+            data.put(new User("User " + u), ratings);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,132 @@
+package org.main;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Predictions must only depend on the ratings, not on the order users and items are trained or
+ * predicted in. Ratings are whole numbers, so every sum is exact and results can be compared exactly.
+ */
+class SlopeOneModelTest {
+
+    @Test
+    void denseTrainingIsIndependentOfOrder() {
+        assertOrderIndependent(ratings(300, 40, 8, 1));
+    }
+
+    @Test
+    void sparseTrainingIsIndependentOfOrder() {
+        assertOrderIndependent(ratings(300, PairMatrix.DENSE_LIMIT + 500, 12, 2));
+    }
+
+    @Test
+    void predictionIsIndependentOfPreviousUsers() {
+        Map<User, Map<Item, Double>> data = ratings(200, 60, 10, 3);
+        SlopeOneModel model = SlopeOneModel.train(data);
+        List<User> users = new ArrayList<>(data.keySet());
+        Map<User, Map<Item, Double>> forward = new HashMap<>();
+        for (User user : users) {
+            forward.put(user, model.predict(user));
+        }
+        Collections.reverse(users);
+        for (User user : users) {
+            assertEquals(forward.get(user), model.predict(user), user.getUsername());
+        }
+    }
+
+    @Test
+    void streamedUserSplitInTwoIsMerged() {
+        Map<User, Map<Item, Double>> data = ratings(100, 30, 8, 4);
+        ItemDictionary dictionary = new ItemDictionary();
+        for (Map<Item, Double> ratings : data.values()) {
+            ratings.keySet().forEach(dictionary::intern);
+        }
+        List<RatedUser> head = new ArrayList<>();
+        List<RatedUser> tail = new ArrayList<>();
+        for (Map.Entry<User, Map<Item, Double>> e : data.entrySet()) {
+            UserRatings first = new UserRatings();
+            UserRatings second = new UserRatings();
+            int i = 0;
+            for (Map.Entry<Item, Double> rating : e.getValue().entrySet()) {
+                (i++ % 2 == 0 ? first : second).add(dictionary.idOf(rating.getKey()), rating.getValue());
+            }
+            head.add(new RatedUser(e.getKey(), first));
+            tail.add(new RatedUser(e.getKey(), second));
+        }
+        head.addAll(tail);
+        SlopeOneModel streamed = SlopeOneModel.train(dictionary, head.stream());
+        SlopeOneModel model = SlopeOneModel.train(data);
+        for (User user : data.keySet()) {
+            assertEquals(model.predict(user), streamed.predict(user), user.getUsername());
+        }
+    }
+
+    @Test
+    void hugeRecommendationCountIsClamped() {
+        Map<User, Map<Item, Double>> data = ratings(50, 30, 5, 5);
+        SlopeOneModel model = SlopeOneModel.train(data);
+        User user = data.keySet().iterator().next();
+        List<Recommendation> all = model.recommend(user, Integer.MAX_VALUE);
+        assertEquals(model.predict(user).size(), all.size());
+    }
+
+    private static void assertOrderIndependent(Map<User, Map<Item, Double>> data) {
+        SlopeOneModel model = SlopeOneModel.train(data);
+        Random random = new Random(42);
+        int predicted = 0;
+        for (int round = 0; round < 3; round++) {
+            Map<User, Map<Item, Double>> shuffled = shuffle(data, random);
+            SlopeOneModel other = round == 0 ? SlopeOneModel.train(shuffled, 4) : SlopeOneModel.train(shuffled);
+            List<User> users = new ArrayList<>(shuffled.keySet());
+            Collections.shuffle(users, random);
+            for (User user : users) {
+                Map<Item, Double> expected = model.predict(user);
+                predicted += expected.size();
+                assertEquals(expected, other.predict(user), user.getUsername());
+            }
+        }
+        assertNotEquals(0, predicted);
+    }
+
+    /**
+     * @return same ratings with users and every user's items in a new random order
+     */
+    private static Map<User, Map<Item, Double>> shuffle(Map<User, Map<Item, Double>> data, Random random) {
+        List<User> users = new ArrayList<>(data.keySet());
+        Collections.shuffle(users, random);
+        Map<User, Map<Item, Double>> shuffled = new LinkedHashMap<>();
+        for (User user : users) {
+            List<Map.Entry<Item, Double>> entries = new ArrayList<>(data.get(user).entrySet());
+            Collections.shuffle(entries, random);
+            Map<Item, Double> ratings = new LinkedHashMap<>();
+            for (Map.Entry<Item, Double> entry : entries) {
+                ratings.put(entry.getKey(), entry.getValue());
+            }
+            shuffled.put(user, ratings);
+        }
+        return shuffled;
+    }
+
+    private static Map<User, Map<Item, Double>> ratings(int users, int items, int ratingsPerUser, long seed) {
+        Random random = new Random(seed);
+        Map<User, Map<Item, Double>> data = new LinkedHashMap<>();
+        for (int u = 0; u < users; u++) {
+            Map<Item, Double> ratings = new LinkedHashMap<>();
+            for (int r = 0; r < ratingsPerUser; r++) {
+                ratings.put(new Item("Item " + random.nextInt(items)), 1.0 + random.nextInt(5));
+            }
+            data.put(new User("User " + u), ratings);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,43 @@
+package org.main;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rating updates made while a model is trained must survive the swap to the trained model.
+ */
+class SlopeOneTest {
+
+    private final User alice = new User("alice");
+    private final User bob = new User("bob");
+    private final Item x = new Item("x");
+    private final Item y = new Item("y");
+
+    @Test
+    void updatesDuringTrainingAreKept() {
+        SlopeOne slopeOne = new SlopeOne();
+        slopeOne.setRating(bob, y, 2.0);
+        Map<User, Map<Item, Double>> data = new HashMap<>() {
+            @Override
+            public Set<Map.Entry<User, Map<Item, Double>>> entrySet() {
+                // runs while the model is trained, standing in for a concurrent request
+                slopeOne.setRating(alice, y, 4.0);
+                slopeOne.removeRating(bob, x);
+                return super.entrySet();
+            }
+        };
+        data.put(alice, new HashMap<>(Map.of(x, 3.0)));
+        data.put(bob, new HashMap<>(Map.of(x, 1.0, y, 2.0)));
+        slopeOne.train(data);
+
+        assertEquals(4.0, slopeOne.getRating(alice, y));
+        assertTrue(Double.isNaN(slopeOne.getRating(bob, x)));
+        assertEquals(2.0, slopeOne.getRating(bob, y));
+    }
+}
@@ -0,0 +1,74 @@
+package org.ml.training;
+
+import org.deeplearning4j.datasets.iterator.ExistingDataSetIterator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Batches of other sizes than the cached ones must serve every example once, in order, on the
+ * first pass and on the cached passes.
+ */
+class DiskCachedDataSetIteratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nextWithOtherSizeMergesAndSplitsBatches() {
+        DiskCachedDataSetIterator iterator = new DiskCachedDataSetIterator(source(10, 4), directory.resolve("cache"));
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0), features(iterator, 3));
+        iterator.reset();
+        assertTrue(iterator.isCached());
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0), features(iterator, 6));
+        iterator.reset();
+        assertEquals(List.of(4, 4, 2), sizes(iterator, 4));
+    }
+
+    private static List<Double> features(DataSetIterator iterator, int num) {
+        List<Double> features = new ArrayList<>();
+        while (iterator.hasNext()) {
+            DataSet batch = iterator.next(num);
+            assertTrue(batch.numExamples() <= num);
+            for (double value : batch.getFeatures().toDoubleVector()) {
+                features.add(value);
+            }
+        }
+        return features;
+    }
+
+    private static List<Integer> sizes(DataSetIterator iterator, int num) {
+        List<Integer> sizes = new ArrayList<>();
+        while (iterator.hasNext()) {
+            sizes.add(iterator.next(num).numExamples());
+        }
+        return sizes;
+    }
+
+    /**
+     * Examples {@code 0..examples-1} with their index as the only feature, in batches of {@code batch}
+     */
+    private static DataSetIterator source(int examples, int batch) {
+        List<DataSet> batches = new ArrayList<>();
+        for (int from = 0; from < examples; from += batch) {
+            int size = Math.min(batch, examples - from);
+            double[][] features = new double[size][1];
+            double[][] labels = new double[size][2];
+            for (int i = 0; i < size; i++) {
+                features[i][0] = from + i;
+                labels[i][(from + i) % 2] = 1.0;
+            }
+            batches.add(new DataSet(Nd4j.create(features), Nd4j.create(labels)));
+        }
+        return new ExistingDataSetIterator(batches);
+    }
+}
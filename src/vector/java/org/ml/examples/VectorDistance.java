@@ -0,0 +1,40 @@
+package org.ml.examples;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD squared distances. Only compiled by the {@code vector} profile and only loaded by
+ * {@link Distortion} when the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorDistance implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+
+    /**
+     * Lanes are added in the order of {@link Distortion#minSquared}
+     */
+    @Override
+    public double minSquared(double[] point, int offset, double[] centers, int k, int length) {
+        double min = Double.MAX_VALUE;
+        int bound = SPECIES.loopBound(length);
+        for (int c = 0, center = 0; c < k; c++, center += length) {
+            DoubleVector lanes = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < bound; i += SPECIES.length()) {
+                DoubleVector d = DoubleVector.fromArray(SPECIES, point, offset + i)
+                        .sub(DoubleVector.fromArray(SPECIES, centers, center + i));
+                lanes = lanes.add(d.mul(d));
+            }
+            double distance = lanes.lane(0) + lanes.lane(1) + lanes.lane(2) + lanes.lane(3);
+            for (; i < length; i++) {
+                double d = point[offset + i] - centers[center + i];
+                distance += d * d;
+            }
+            if (distance < min) {
+                min = distance;
+            }
+        }
+        return min;
+    }
+}